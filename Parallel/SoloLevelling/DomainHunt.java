@@ -0,0 +1,217 @@
+/**
+ * DomainHunt.java
+ *
+ * Spatial domain decomposition of a hunt. The dungeon is cut into square tiles, and
+ * each worker thread owns a run of consecutive tiles along a Hilbert curve, so its
+ * region is compact. A worker climbs only in the tiles it owns and is the only one to
+ * write their cells of the mana and visited maps; cells it needs to compare across a
+ * boundary are read, or evaluated without storing them. A search that steps into a
+ * tile owned by another worker is passed to that worker through its Inbox, a lock-free
+ * multi-producer single-consumer queue.
+ *
+ * Nothing is shared but the inboxes and the count of unfinished searches, so how well
+ * this scales comes down to how evenly the searches' work falls on the regions; with
+ * -Dhunt.stats=true HuntStats reports the hunts per worker, hand-offs and idle waits.
+ * The only writes to a shared cache line are at tile edges that fall inside one.
+ * Cells evaluated across a region edge are not stored, so they are missing from the
+ * grid points evaluated (HuntStats counts them as boundary evaluations).
+ *
+ * The searches are those of a HuntBatch, with the same start positions and climbing
+ * rule as the other engines; with basin tracking, searches that run into an earlier
+ * path are resolved by resolveMergedHunts once the workers have finished.
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+final class DomainHunt {
+	static final int DEFAULT_TILE = 64;
+
+	private static final int FINISHED_FLUSH = 64; //finished searches a worker counts before publishing them
+
+	private final HuntBatch batch;
+	private final int tileShift, tileColumns;
+	private final int[] tileOwner; //worker of each tile, row-major
+	private final Inbox[] inboxes;
+	private final Thread[] threads;
+	private final AtomicInteger unfinished = new AtomicInteger();
+	private volatile Throwable failure;
+
+	/**
+	 * @param tileSize side of the owned tiles, a power of two no smaller than the
+	 * dungeon's mana tiles. Rows are stored flat, so visited bitmap words and cache
+	 * lines line up with tile edges only if the row length is a multiple of their
+	 * width; otherwise those at a tile's left and right edges are shared
+	 * @param workers number of worker threads
+	 */
+	DomainHunt(DungeonMap dungeon, HuntBatch batch, int tileSize, int workers) {
+		if (tileSize < 2 || Integer.bitCount(tileSize) != 1 || tileSize < dungeon.getTileSize())
+			throw new IllegalArgumentException("Domain tile size must be a power of two, at least the mana tile size");
+		if (workers <= 0) throw new IllegalArgumentException("Worker count must be > 0");
+		this.batch = batch;
+		tileShift = Integer.numberOfTrailingZeros(tileSize);
+		tileColumns = (dungeon.getColumns() + tileSize - 1) >> tileShift;
+		int tileRows = (dungeon.getRows() + tileSize - 1) >> tileShift;
+		tileOwner = assignTiles(tileRows, tileColumns, workers);
+		inboxes = new Inbox[workers];
+		for (int w = 0; w < workers; w++) inboxes[w] = new Inbox();
+		threads = new Thread[workers];
+	}
+
+	// cut the Hilbert curve through the tiles into one run of equal length per worker
+	private static int[] assignTiles(int tileRows, int tileColumns, int workers) {
+		int tiles = tileRows * tileColumns;
+		int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(tileRows, tileColumns) - 1));
+		long[] keys = new long[tiles];
+		for (int t = 0; t < tiles; t++)
+			keys[t] = DungeonHunter.hilbertIndex(t / tileColumns, t % tileColumns, bits) << 32 | t;
+		Arrays.sort(keys);
+		int[] owner = new int[tiles];
+		for (int k = 0; k < tiles; k++) owner[(int) keys[k]] = (int) ((long) k * workers / tiles);
+		return owner;
+	}
+
+	private int ownerOf(int row, int col) {
+		return tileOwner[(row >> tileShift) * tileColumns + (col >> tileShift)];
+	}
+
+	/**
+	 * Places searches order[0 .. numSearches) (or 0 .. numSearches without an order) and
+	 * climbs them all on the workers.
+	 *
+	 * @return the highest mana a search reported
+	 */
+	int hunt(int numSearches, long seed, int[] order) throws InterruptedException, ExecutionException {
+		int workers = inboxes.length;
+		// hand each worker the searches that start in its region, in slot order
+		int[] owners = new int[numSearches];
+		int[] firstStart = new int[workers + 1];
+		for (int k = 0; k < numSearches; k++) {
+			int i = order != null ? order[k] : k;
+			batch.place(i, seed);
+			owners[k] = ownerOf(batch.getPosRow(i), batch.getPosCol(i));
+			firstStart[owners[k] + 1]++;
+		}
+		for (int w = 0; w < workers; w++) firstStart[w + 1] += firstStart[w];
+		int[] starts = new int[numSearches];
+		int[] fill = Arrays.copyOf(firstStart, workers);
+		for (int k = 0; k < numSearches; k++) starts[fill[owners[k]]++] = order != null ? order[k] : k;
+
+		unfinished.set(numSearches);
+		int[] peaks = new int[workers];
+		for (int w = 0; w < workers; w++) {
+			int worker = w;
+			threads[w] = Thread.ofPlatform().name("domain-worker-" + w).unstarted(() -> {
+				try {
+					peaks[worker] = work(worker, starts, firstStart[worker], firstStart[worker + 1]);
+				} catch (Throwable t) {
+					failure = t;
+					for (Thread thread : threads) LockSupport.unpark(thread);
+				}
+			});
+		}
+		for (Thread thread : threads) thread.start();
+		for (Thread thread : threads) thread.join();
+		if (failure != null) throw new ExecutionException(failure);
+		return Arrays.stream(peaks).max().orElse(Integer.MIN_VALUE);
+	}
+
+	// one worker: its own starts, then whatever the other workers pass it, until every search has finished
+	private int work(int worker, int[] starts, int from, int to) {
+		Inbox inbox = inboxes[worker];
+		int max = Integer.MIN_VALUE;
+		int finished = 0; //not yet taken off unfinished
+		int next = from;
+		while (failure == null) {
+			int i = inbox.poll();
+			if (i < 0 && next < to) i = starts[next++];
+			if (i < 0) {
+				if (finished > 0) {
+					publishFinished(finished);
+					finished = 0;
+				}
+				if (unfinished.get() == 0) break;
+				inbox.idle = true;
+				if (inbox.isEmpty() && unfinished.get() > 0 && failure == null) {
+					if (HuntStats.ENABLED) HuntStats.parks.increment();
+					LockSupport.park(this);
+				}
+				inbox.idle = false;
+				continue;
+			}
+
+			// climb through this worker's tiles until the search finishes or leaves them
+			int owner = ownerOf(batch.getPosRow(i), batch.getPosCol(i));
+			if (owner == worker && batch.climbOwned(i, tileOwner, tileShift, worker)) {
+				max = Math.max(max, batch.getPower(i));
+				if (HuntStats.ENABLED) HuntStats.searchFinished(batch.getSteps(i), !batch.isAtPeak(i));
+				if (++finished == FINISHED_FLUSH) {
+					publishFinished(finished);
+					finished = 0;
+				}
+			} else {
+				if (owner == worker) owner = ownerOf(batch.getPosRow(i), batch.getPosCol(i)); //where it stepped out to
+				inboxes[owner].offer(i, threads[owner]);
+				if (HuntStats.ENABLED) HuntStats.handoffs.increment();
+			}
+		}
+		return max;
+	}
+
+	// the last searches to finish wake every worker, so the idle ones see there is nothing left
+	private void publishFinished(int count) {
+		if (unfinished.addAndGet(-count) == 0)
+			for (Thread thread : threads) LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Lock-free multi-producer single-consumer queue of search indices (Vyukov's
+	 * intrusive queue): producers swap themselves in at the tail, the owner alone
+	 * takes from the head. A producer that finds the owner idle unparks it.
+	 */
+	static final class Inbox {
+		private static final VarHandle TAIL, NEXT;
+		static {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				TAIL = lookup.findVarHandle(Inbox.class, "tail", Node.class);
+				NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+			} catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		private static final class Node {
+			final int search;
+			volatile Node next;
+
+			Node(int search) { this.search = search; }
+		}
+
+		private Node head = new Node(-1); //consumer only; the last node taken
+		@SuppressWarnings("unused") // through TAIL
+		private volatile Node tail = head;
+		volatile boolean idle; //the owner is about to park, or parked
+
+		void offer(int search, Thread owner) {
+			Node node = new Node(search);
+			Node previous = (Node) TAIL.getAndSet(this, node);
+			NEXT.setVolatile(previous, node);
+			if (idle) LockSupport.unpark(owner);
+		}
+
+		/** The next search, or -1 if there is none (yet: an offer may be half way through). */
+		int poll() {
+			Node next = head.next;
+			if (next == null) return -1;
+			head = next;
+			return next.search;
+		}
+
+		boolean isEmpty() { return head.next == null; }
+	}
+}
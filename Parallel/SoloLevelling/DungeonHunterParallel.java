@@ -1,79 +1,392 @@
 
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
 import java.util.concurrent.*;
 
 /**
  * Parallel version of DungeonHunter using Fork-Join Framework.
  * Usage:
- *   java DungeonHunter <gridSize> <numSearches> <randomSeed>
+ *   java DungeonHunter <gridSize> <numSearches> <randomSeed> [options]
+ * Options:
+ *   --tile=<n>          evaluate mana in n x n tiles on first touch (n a power of two, 0 = per cell)
+ *   --engine=forkjoin   recursive splitting of the searches on a ForkJoinPool (default)
+ *   --engine=batch      as forkjoin, with the searches kept as primitive arrays and each
+ *                       ForkJoin leaf climbing its searches in lock-step
+ *   --engine=domain     the dungeon split into tiles, each owned by one worker thread that
+ *                       alone writes its cells; searches move between workers
+ *   --engine=virtual    one virtual thread per batch of searches
+ *   --engine=exhaustive no searches: evaluate every cell in parallel and take the highest
+ *                       (cheaper than hunting as the search fraction nears 1)
+ *   --engine=serial     all searches one after the other on the main thread
+ *   --threads=<n>       ForkJoinPool parallelism, or domain workers (default: all cores)
+ *   --domain=<n>        side of the domain engine's tiles, a power of two (default 64)
+ *   --order=<curve>     hand the searches to workers in order of their start position along
+ *                       a hilbert or morton curve, so each worker's searches are neighbours;
+ *                       random (default) keeps search index order
+ *   --batch=<n>         searches per virtual thread (default 16)
+ *   --basins            a search that runs into an earlier path reports the peak of that path
+ *   --stream            write the images with the bounded-memory PNG writer
+ *                       (always used above STREAM_PIXELS cells)
+ *   --preview=<f>       also write visualiseSearchPreview.png, downsampled f times
+ *                       (f at most the smaller side of the grid)
+ *   --verify            after the hunt, find the true maximum by evaluating every cell in
+ *                       parallel (not stored), and report whether the hunt found it and at
+ *                       what share of the exhaustive scan's cells and time
+ *   --cache=<dir>       start from the mana cached in dir by earlier runs on the same dungeon,
+ *                       and add this run's cells to it (needs a fixed seed)
+ * The virtual threads run on jdk.virtualThreadScheduler.parallelism carrier threads.
+ * Run with -Dhunt.stats=true for hot-path counters and JFR events (see HuntStats).
  */
 class DungeonHunter {
     static final boolean DEBUG = false;
-    static long startTime = 0;
-    static long endTime = 0;
-    
-    private static void tick() { startTime = System.currentTimeMillis(); }
-    private static void tock() { endTime = System.currentTimeMillis(); }
+    // above this many cells the images are streamed rather than built in memory
+    static final long STREAM_PIXELS = 1L << 24;
+
+    // Start positions are a counter-based hash of (seed, search index), so each search
+    // starts in the same place whichever worker runs it and in whatever order.
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    static long startBits(long seed, int search) {
+        long z = seed + (search + 1) * GOLDEN_GAMMA; // SplitMix64
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // scale 32 random bits into [0, bound)
+    static int startRow(long bits, int rows) { return (int) (((bits >>> 32) * rows) >>> 32); }
+    static int startCol(long bits, int columns) { return (int) (((bits & 0xFFFFFFFFL) * columns) >>> 32); }
+
+    /**
+     * The searches sorted by the position of their start along a space-filling curve:
+     * element k is the index of the k-th search to run. Contiguous ranges of it are
+     * spatial blocks, so a worker's consecutive searches climb over cells it has just read.
+     *
+     * @param curve "hilbert" or "morton"
+     */
+    static int[] curveOrder(long seed, int numSearches, int rows, int columns, String curve) {
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(rows, columns) - 1));
+        int indexBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(numSearches - 1));
+        int shift = Math.max(0, 2 * bits + indexBits - 63); //drop the finest curve bits if the key would overflow
+        long[] keys = new long[numSearches];
+        for (int i = 0; i < numSearches; i++) {
+            long start = startBits(seed, i);
+            int row = startRow(start, rows), col = startCol(start, columns);
+            long d = curve.equals("hilbert") ? hilbertIndex(row, col, bits) : mortonIndex(row, col);
+            keys[i] = (d >>> shift) << indexBits | i;
+        }
+        Arrays.parallelSort(keys);
+        int[] order = new int[numSearches];
+        long indexMask = (1L << indexBits) - 1;
+        for (int k = 0; k < numSearches; k++) order[k] = (int) (keys[k] & indexMask);
+        return order;
+    }
+
+    // distance of (x, y) along the Hilbert curve filling a 2^bits square
+    static long hilbertIndex(int x, int y, int bits) {
+        int n = 1 << bits;
+        long d = 0;
+        for (int s = n >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) { //rotate the quadrant
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    // bits of x and y interleaved, x in the odd positions
+    static long mortonIndex(int x, int y) { return spreadBits(x) << 1 | spreadBits(y); }
+
+    private static long spreadBits(int v) {
+        long z = v & 0xFFFFFFFFL;
+        z = (z | (z << 16)) & 0x0000FFFF0000FFFFL;
+        z = (z | (z << 8)) & 0x00FF00FF00FF00FFL;
+        z = (z | (z << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        z = (z | (z << 2)) & 0x3333333333333333L;
+        z = (z | (z << 1)) & 0x5555555555555555L;
+        return z;
+    }
 
     // Inner class for parallel task
+    // Splits adaptively: a task keeps halving its range while the pool is short of queued
+    // work, and otherwise hunts MIN_GRAIN searches before looking again. Uneven hunt
+    // lengths and any pool size are absorbed without a hand-tuned threshold.
     static class HuntTask extends RecursiveTask<Integer> {
-        private static final int SEQUENTIAL_THRESHOLD = 1000; // Tune for performance
+        private static final int MIN_GRAIN = 8;       // never split below this many searches
+        private static final int BATCH_GRAIN = 64;    // as MIN_GRAIN, for lock-step batches of searches
+        private static final int SURPLUS_TARGET = 2;  // queued tasks per worker beyond which we stop splitting
         private final DungeonMap dungeon;
         private final int startSearch, endSearch;
-        private final Random rand;
+        private final long seed;
         private final Hunt[] searches;
         private final int[] peakValues;
-        private int finder = -1;
+        private final HuntBatch batch; // searches as arrays instead of Hunt objects, or null
+        private final int[] order; // search to run at each slot of [start, end), or null for slot = search
+        private HuntTask nextForked; // chains the halves this task forked, newest first
 
-        HuntTask(DungeonMap dungeon, int start, int end, Random rand, Hunt[] searches, int[] peakValues) {
+        HuntTask(DungeonMap dungeon, int start, int end, long seed, Hunt[] searches, int[] peakValues) {
+            this(dungeon, start, end, seed, searches, peakValues, null, null);
+        }
+
+        // the searches are those of batch, climbed in lock-step by the leaves
+        HuntTask(DungeonMap dungeon, int start, int end, long seed, HuntBatch batch) {
+            this(dungeon, start, end, seed, null, batch.peakValues(), batch, null);
+        }
+
+        // slots [start, end) of order, as from curveOrder; searches is null with a batch
+        HuntTask(DungeonMap dungeon, int start, int end, long seed, Hunt[] searches, int[] peakValues,
+                 HuntBatch batch, int[] order) {
             this.dungeon = dungeon;
             this.startSearch = start;
             this.endSearch = end;
-            this.rand = rand;
+            this.seed = seed;
             this.searches = searches;
             this.peakValues = peakValues;
+            this.batch = batch;
+            this.order = order;
+        }
+
+        private int hunt(int from, int to) {
+            return batch != null ? batch.huntRange(from, to, seed, order)
+                    : huntRange(dungeon, from, to, seed, searches, peakValues, order);
         }
 
         @Override
         protected Integer compute() {
-            if (endSearch - startSearch <= SEQUENTIAL_THRESHOLD) {
-                int localMax = Integer.MIN_VALUE;
-                for (int i = startSearch; i < endSearch; i++) {
-                    searches[i] = new Hunt(i + 1,
-                            rand.nextInt(dungeon.getRows()),
-                            rand.nextInt(dungeon.getColumns()),
-                            dungeon);
-                    peakValues[i] = searches[i].findManaPeak(); // store computed peak
-                    if (peakValues[i] > localMax) {
-                        localMax = peakValues[i];
-                        finder = i;
-                    }
-                    if (DEBUG) System.out.println("Shadow " + searches[i].getID() + " finished at " + peakValues[i]);
+            int lo = startSearch, hi = endSearch;
+            int max = Integer.MIN_VALUE;
+            HuntTask forked = null;
+            int grain = batch != null ? BATCH_GRAIN : MIN_GRAIN;
+            while (hi - lo > grain) {
+                if (getSurplusQueuedTaskCount() <= SURPLUS_TARGET) {
+                    int mid = (lo + hi) >>> 1;
+                    HuntTask right = new HuntTask(dungeon, mid, hi, seed, searches, peakValues, batch, order);
+                    right.nextForked = forked;
+                    forked = right;
+                    right.fork();
+                    hi = mid;
+                } else {
+                    max = Math.max(max, hunt(lo, lo + grain));
+                    lo += grain;
                 }
-                return localMax;
-            } else {
-                int mid = (startSearch + endSearch) >>> 1;
-                HuntTask left = new HuntTask(dungeon, startSearch, mid, rand, searches, peakValues);
-                HuntTask right = new HuntTask(dungeon, mid, endSearch, rand, searches, peakValues);
-                left.fork();
-                int rightMax = right.compute();
-                int leftMax = left.join();
-                return Math.max(leftMax, rightMax);
             }
+            max = Math.max(max, hunt(lo, hi));
+            for (; forked != null; forked = forked.nextForked)
+                max = Math.max(max, forked.join());
+            return max;
+        }
+    }
+
+    // Run searches [from, to) one after the other; returns the highest peak found
+    static int huntRange(DungeonMap dungeon, int from, int to, long seed, Hunt[] searches, int[] peakValues) {
+        return huntRange(dungeon, from, to, seed, searches, peakValues, null);
+    }
+
+    // As above, running search order[k] at slot k when order is given
+    static int huntRange(DungeonMap dungeon, int from, int to, long seed, Hunt[] searches, int[] peakValues,
+                         int[] order) {
+        int localMax = Integer.MIN_VALUE;
+        for (int k = from; k < to; k++) {
+            int i = order != null ? order[k] : k;
+            long start = startBits(seed, i);
+            searches[i] = new Hunt(i + 1,
+                    startRow(start, dungeon.getRows()),
+                    startCol(start, dungeon.getColumns()),
+                    dungeon);
+            HuntStats.HuntEvent event = HuntStats.ENABLED ? HuntStats.huntStarted(searches[i]) : null;
+            peakValues[i] = searches[i].findManaPeak(); // store computed peak
+            if (HuntStats.ENABLED) HuntStats.huntFinished(event, searches[i], peakValues[i]);
+            if (peakValues[i] > localMax) localMax = peakValues[i];
+            if (DEBUG) System.out.println("Shadow " + searches[i].getID() + " finished at " + peakValues[i]);
+        }
+        return localMax;
+    }
+
+    // Alternative to HuntTask: each batch of searches runs on its own virtual thread
+    static int huntOnVirtualThreads(DungeonMap dungeon, int numSearches, int batchSize, long seed,
+                                    Hunt[] searches, int[] peakValues, int[] order)
+            throws InterruptedException, ExecutionException {
+        List<Future<Integer>> batches = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < numSearches; from += batchSize) {
+                int start = from, end = Math.min(from + batchSize, numSearches);
+                batches.add(executor.submit(() -> huntRange(dungeon, start, end, seed, searches, peakValues, order)));
+            }
+            int max = Integer.MIN_VALUE;
+            for (Future<Integer> batch : batches) max = Math.max(max, batch.get());
+            return max;
         }
     }
 
+    // With basin tracking: searches that hit a path still being climbed get its peak now
+    static int resolveMergedHunts(Hunt[] searches, int[] peakValues) {
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < searches.length; i++) {
+            if (searches[i].isStopped() && !searches[i].isResolved()) {
+                peakValues[i] = searches[i].resolvePeak();
+                max = Math.max(max, peakValues[i]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Runs numSearches hunts on the dungeon, configured beforehand (tiles, basins),
+     * and reports the highest peak. Prints nothing and writes no images.
+     *
+     * @param engine "forkjoin", "batch", "domain", "virtual", "serial" or "exhaustive", as the --engine option
+     * @param parallelism ForkJoinPool parallelism, or 0 for one worker per core
+     * @param batchSize searches per virtual thread
+     */
+    static HuntResult hunt(DungeonMap dungeon, int numSearches, long seed, String engine,
+                           int parallelism, int batchSize)
+            throws InterruptedException, ExecutionException {
+        return hunt(dungeon, numSearches, seed, engine, parallelism, batchSize, "random", 0);
+    }
+
+    /**
+     * As above, with the searches handed out in startOrder: "random" for search index
+     * order, or "hilbert" or "morton" for curveOrder, which is then part of the timed run.
+     *
+     * @param domainSize tile side of the "domain" engine, or 0 for DomainHunt.DEFAULT_TILE
+     */
+    static HuntResult hunt(DungeonMap dungeon, int numSearches, long seed, String engine,
+                           int parallelism, int batchSize, String startOrder, int domainSize)
+            throws InterruptedException, ExecutionException {
+        if (!startOrder.equals("random") && !startOrder.equals("hilbert") && !startOrder.equals("morton"))
+            throw new IllegalArgumentException("Unknown order " + startOrder);
+        if (engine.equals("exhaustive")) return scanAll(dungeon, parallelism, true);
+        HuntBatch batch = engine.equals("batch") || engine.equals("domain") ? new HuntBatch(dungeon, numSearches) : null;
+        Hunt[] searches = batch == null ? new Hunt[numSearches] : null;
+        int[] peakValues = batch == null ? new int[numSearches] : batch.peakValues();
+        if (HuntStats.ENABLED) HuntStats.reset();
+        long startNanos;
+        long steals = 0;
+        int[] order = null;
+        int max;
+        if (engine.equals("virtual")) {
+            startNanos = System.nanoTime();
+            if (!startOrder.equals("random"))
+                order = curveOrder(seed, numSearches, dungeon.getRows(), dungeon.getColumns(), startOrder);
+            max = huntOnVirtualThreads(dungeon, numSearches, batchSize, seed, searches, peakValues, order);
+        } else if (engine.equals("serial")) {
+            startNanos = System.nanoTime();
+            if (!startOrder.equals("random"))
+                order = curveOrder(seed, numSearches, dungeon.getRows(), dungeon.getColumns(), startOrder);
+            max = huntRange(dungeon, 0, numSearches, seed, searches, peakValues, order);
+        } else if (engine.equals("domain")) {
+            DomainHunt domain = new DomainHunt(dungeon, batch, domainSize > 0 ? domainSize : DomainHunt.DEFAULT_TILE,
+                    parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+            startNanos = System.nanoTime();
+            if (!startOrder.equals("random"))
+                order = curveOrder(seed, numSearches, dungeon.getRows(), dungeon.getColumns(), startOrder);
+            max = domain.hunt(numSearches, seed, order);
+        } else if (engine.equals("forkjoin") || engine.equals("batch")) {
+            ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : new ForkJoinPool();
+            try {
+                startNanos = System.nanoTime();
+                if (!startOrder.equals("random"))
+                    order = curveOrder(seed, numSearches, dungeon.getRows(), dungeon.getColumns(), startOrder);
+                max = pool.invoke(new HuntTask(dungeon, 0, numSearches, seed, searches, peakValues, batch, order));
+                steals = pool.getStealCount();
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+        if (dungeon.isTrackingBasins())
+            max = Math.max(max, batch != null ? batch.resolveMergedHunts() : resolveMergedHunts(searches, peakValues));
+        long endNanos = System.nanoTime();
+        if (HuntStats.ENABLED) HuntStats.runFinished(engine, numSearches, dungeon.getGridPointsEvaluated(), steals);
+
+        // Find which search found the global maximum, and how long the searches ran
+        int globalFinder = -1;
+        int[] histogram = new int[HuntResult.stepsBucket(Integer.MAX_VALUE) + 1];
+        int buckets = 0;
+        for (int i = 0; i < numSearches; i++) {
+            if (globalFinder < 0 && peakValues[i] == max) globalFinder = i;
+            int bucket = HuntResult.stepsBucket(batch != null ? batch.getSteps(i) : searches[i].getSteps());
+            histogram[bucket]++;
+            buckets = Math.max(buckets, bucket + 1);
+        }
+
+        int peakRow = -1, peakCol = -1;
+        double peakX = Double.NaN, peakY = Double.NaN;
+        if (globalFinder >= 0) {
+            peakRow = batch != null ? batch.getPosRow(globalFinder) : searches[globalFinder].getPosRow();
+            peakCol = batch != null ? batch.getPosCol(globalFinder) : searches[globalFinder].getPosCol();
+            peakX = dungeon.getXcoord(peakRow);
+            peakY = dungeon.getYcoord(peakCol);
+        }
+        return new HuntResult(numSearches, startNanos, endNanos, max, peakRow, peakCol, peakX, peakY,
+                globalFinder < 0 ? -1 : globalFinder + 1, //search i has id i+1
+                dungeon.getGridPointsEvaluated(), (long) dungeon.getRows() * dungeon.getColumns(),
+                Arrays.copyOf(histogram, buckets));
+    }
+
+    /**
+     * The true highest mana of the dungeon, from every cell evaluated on a ForkJoinPool of
+     * the given parallelism (0: one worker per core). With store the cells go into the map,
+     * as the exhaustive engine's result; without, the map is untouched and the scan can
+     * check a hunt. There are no searches: finder is -1 and the histogram empty.
+     */
+    static HuntResult scanAll(DungeonMap dungeon, int parallelism, boolean store)
+            throws InterruptedException, ExecutionException {
+        if (HuntStats.ENABLED && store) HuntStats.reset();
+        ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : new ForkJoinPool();
+        long startNanos, endNanos, peak;
+        try {
+            startNanos = System.nanoTime();
+            peak = pool.submit(() -> dungeon.findGlobalPeak(store)).get(); //the parallel stream runs on pool
+            endNanos = System.nanoTime();
+        } finally {
+            pool.shutdown();
+        }
+        int index = ~(int) peak;
+        int peakRow = index / dungeon.getColumns(), peakCol = index % dungeon.getColumns();
+        long cells = (long) dungeon.getRows() * dungeon.getColumns();
+        if (HuntStats.ENABLED && store) HuntStats.runFinished("exhaustive", 0, dungeon.getGridPointsEvaluated(), 0);
+        return new HuntResult(0, startNanos, endNanos, (int) (peak >> 32), peakRow, peakCol,
+                dungeon.getXcoord(peakRow), dungeon.getYcoord(peakCol), -1,
+                store ? dungeon.getGridPointsEvaluated() : (int) cells, cells, new int[0]);
+    }
+
     public static void main(String[] args) {
         double xmin, xmax, ymin, ymax;
         DungeonMap dungeon;
         int numSearches = 10, gateSize = 10;
-        Hunt[] searches;
-        int[] peakValues;
-        Random rand = new Random();
         int randomSeed = 0;
+        int tileSize = 0;
+        String engine = "forkjoin";
+        int batchSize = 16;
+        int threads = 0;
+        boolean basins = false;
+        boolean stream = false;
+        int preview = 0;
+        String cacheDir = null;
+        String order = "random";
+        int domainSize = 0;
+        boolean verify = false;
 
-        if (args.length != 3) {
-            System.out.println("Usage: java DungeonHunter <gridSize> <numSearches> <randomSeed>");
+        if (args.length < 3) {
+            System.out.println("Usage: java DungeonHunter <gridSize> <numSearches> <randomSeed>"
+                    + " [--tile=<n>] [--engine=forkjoin|batch|domain|virtual|serial|exhaustive] [--threads=<n>] [--domain=<n>]"
+                    + " [--order=random|hilbert|morton] [--batch=<n>] [--basins]"
+                    + " [--stream] [--preview=<f>] [--verify] [--cache=<dir>]");
             System.exit(0);
         }
 
@@ -84,6 +397,36 @@ class DungeonHunter {
             numSearches = (int)(Double.parseDouble(args[1]) * (gateSize * 2) * (gateSize * 2) * DungeonMap.RESOLUTION);
             randomSeed = Integer.parseInt(args[2]);
             if (randomSeed < 0) throw new IllegalArgumentException("Random seed must be >= 0");
+
+            for (int a = 3; a < args.length; a++) {
+                String[] option = args[a].split("=", 2);
+                String value = option.length > 1 ? option[1] : "";
+                switch (option[0]) {
+                    case "--tile": tileSize = Integer.parseInt(value); break;
+                    case "--engine": engine = value; break;
+                    case "--threads": threads = Integer.parseInt(value); break;
+                    case "--order": order = value; break;
+                    case "--domain": domainSize = Integer.parseInt(value); break;
+                    case "--batch": batchSize = Integer.parseInt(value); break;
+                    case "--basins": basins = true; break;
+                    case "--stream": stream = true; break;
+                    case "--preview": preview = Integer.parseInt(value); break;
+                    case "--verify": verify = true; break;
+                    case "--cache": cacheDir = value; break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[a]);
+                }
+            }
+            if (!engine.equals("forkjoin") && !engine.equals("batch") && !engine.equals("domain")
+                    && !engine.equals("virtual") && !engine.equals("serial") && !engine.equals("exhaustive"))
+                throw new IllegalArgumentException("Unknown engine " + engine);
+            if (!order.equals("random") && !order.equals("hilbert") && !order.equals("morton"))
+                throw new IllegalArgumentException("Unknown order " + order);
+            if (domainSize < 0) throw new IllegalArgumentException("Domain tile size must be > 0");
+            if (threads < 0) throw new IllegalArgumentException("Thread count must be > 0");
+            if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be > 0");
+            if (preview < 0) throw new IllegalArgumentException("Preview factor must be >= 0 (0 = no preview)");
+            if (cacheDir != null && randomSeed == 0)
+                throw new IllegalArgumentException("The mana cache needs a fixed random seed");
         } catch (NumberFormatException e) {
             System.err.println("Error: All arguments must be numeric");
             System.exit(1);
@@ -96,23 +439,40 @@ class DungeonHunter {
         xmax = gateSize;
         ymin = -gateSize;
         ymax = gateSize;
-        dungeon = new DungeonMap(xmin, xmax, ymin, ymax, randomSeed);
-        searches = new Hunt[numSearches];
-        peakValues = new int[numSearches];
+        try {
+            dungeon = new DungeonMap(xmin, xmax, ymin, ymax, randomSeed);
+            dungeon.setTileSize(tileSize);
+            dungeon.setBasinTracking(basins);
+            if (preview > Math.min(dungeon.getRows(), dungeon.getColumns()))
+                throw new IllegalArgumentException("Preview factor must be at most "
+                        + Math.min(dungeon.getRows(), dungeon.getColumns()) + ", the smaller side of the grid");
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        int cachedCells = 0;
+        if (cacheDir != null) {
+            try {
+                cachedCells = dungeon.loadManaCache(Path.of(cacheDir));
+            } catch (IOException e) {
+                System.err.println("Warning: mana cache not loaded: " + e);
+            }
+        }
+        long seed = (randomSeed > 0) ? randomSeed : new SplittableRandom().nextLong(); //0 means no fixed seed
 
         // Parallel execution
-        tick();
-        ForkJoinPool pool = new ForkJoinPool();
-        int max = pool.invoke(new HuntTask(dungeon, 0, numSearches, rand, searches, peakValues));
-        tock();
-
-        // Find which search found the global maximum
-        int globalFinder = -1;
-        for (int i = 0; i < searches.length; i++) {
-            if (searches[i] != null && peakValues[i] == max) {
-                globalFinder = i;
-                break;
-            }
+        HuntResult result;
+        try {
+            result = hunt(dungeon, numSearches, seed, engine, threads, batchSize, order, domainSize);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("Error: hunt failed: " + e);
+            System.exit(1);
+            return;
         }
 
         // Output results (same format as serial version)
@@ -120,19 +480,55 @@ class DungeonHunter {
         System.out.printf("\t rows: %d, columns: %d\n", dungeon.getRows(), dungeon.getColumns());
         System.out.printf("\t x: [%f, %f], y: [%f, %f]\n", xmin, xmax, ymin, ymax);
         System.out.printf("\t Number searches: %d\n", numSearches);
-        System.out.printf("\n\t time: %d ms\n", endTime - startTime);
-        
-        int evaluated = dungeon.getGridPointsEvaluated();
+        System.out.printf("\n\t time: %d ms\n", result.elapsedNanos() / 1_000_000);
+
         System.out.printf("\tnumber dungeon grid points evaluated: %d (%2.0f%%)\n",
-                evaluated, (evaluated * 100.0) / (dungeon.getRows() * dungeon.getColumns()));
+                result.gridPointsEvaluated(), result.evaluatedPercent());
+
+        System.out.printf("Dungeon Master (mana %d) found at: ", result.maxMana());
+        System.out.printf("x=%.1f y=%.1f\n\n", result.peakX(), result.peakY());
+        if (HuntStats.ENABLED) System.out.println(HuntStats.report());
 
-        System.out.printf("Dungeon Master (mana %d) found at: ", max);
-        System.out.printf("x=%.1f y=%.1f\n\n",
-                dungeon.getXcoord(searches[globalFinder].getPosRow()),
-                dungeon.getYcoord(searches[globalFinder].getPosCol()));
+        if (verify) {
+            HuntResult truth;
+            try {
+                truth = scanAll(dungeon, threads, false);
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Error: exhaustive scan failed: " + e);
+                System.exit(1);
+                return;
+            }
+            String verdict;
+            if (result.maxMana() == Integer.MIN_VALUE) verdict = "no searches run";
+            else if (result.maxMana() == truth.maxMana()) verdict = "found by the hunt";
+            else if (result.maxMana() == 0) //no relative difference to 0
+                verdict = String.format("missed by the hunt (%d higher)", truth.maxMana());
+            else verdict = String.format("missed by the hunt (%.2f%% higher)",
+                        (truth.maxMana() - (double) result.maxMana()) * 100 / Math.abs(result.maxMana()));
+            System.out.printf("\t ground truth (mana %d) at: x=%.1f y=%.1f, %s\n", truth.maxMana(),
+                    truth.peakX(), truth.peakY(), verdict);
+            // cells loaded from the mana cache cost the hunt nothing, and are not counted here
+            System.out.printf("\t hunt cost: %.1f%% of the cells evaluated this run%s, %.2fx the time of the exhaustive scan (%d ms)\n\n",
+                    result.evaluatedPercent(), cachedCells > 0 ? String.format(" (%d cells loaded from the mana cache)", cachedCells) : "",
+                    (double) result.elapsedNanos() / truth.elapsedNanos(), truth.elapsedNanos() / 1_000_000);
+        }
+
+        if (cacheDir != null) {
+            System.out.printf("\t mana cache: %d cells loaded\n", cachedCells);
+            try {
+                dungeon.saveManaCache(Path.of(cacheDir));
+            } catch (IOException e) {
+                System.err.println("Warning: mana cache not saved: " + e);
+            }
+        }
 
         // Generate visualization files
-        dungeon.visualisePowerMap("visualiseSearch.png", false);
-        dungeon.visualisePowerMap("visualiseSearchPath.png", true);
+        if (stream || (long) dungeon.getRows() * dungeon.getColumns() > STREAM_PIXELS) {
+            dungeon.streamPowerMap("visualiseSearch.png", false, 1);
+            dungeon.streamPowerMap("visualiseSearchPath.png", true, 1);
+        } else {
+            dungeon.visualisePowerMaps("visualiseSearch.png", "visualiseSearchPath.png");
+        }
+        if (preview > 0) dungeon.streamPowerMap("visualiseSearchPreview.png", false, preview);
     }
 }
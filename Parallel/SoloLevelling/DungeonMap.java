@@ -12,32 +12,65 @@
  * 2025
  */
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.imageio.ImageIO;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
 
 public class DungeonMap {
 
 	public static final int PRECISION = 10000;
 	public static final int RESOLUTION = 5;
 
+	// atomic access to int array elements - used for the mana array
+	private static final VarHandle CELL = MethodHandles.arrayElementVarHandle(int[].class);
+	// atomic access to bitmap words - used for the visited and tile bitmaps
+	private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+
 	private int rows, columns; //dungeonGrid size
 	private double xmin, xmax, ymin, ymax; //x and y dungeon limits
-	private int [][] manaMap;
-	private int [][] visit;
-	private int dungeonGridPointsEvaluated;
+	//grids are stored flat in row-major order: cell (x,y) is at index x*columns+y
+	private int [] manaMap;
+	private long [] visited; //one bit per cell, claimed atomically
+	private int [] owner; //id of the hunt that visited each cell, only if owners are tracked
+	private int [] basinLink; //next cell on the path through each visited cell (itself at a peak), -1 until known
+	private final LongAdder dungeonGridPointsEvaluated = new LongAdder(); //striped, no contended counter
     private double bossX;
     private double bossY;
     private double decayFactor;  
+	//tiled evaluation: 0 evaluates cell by cell, otherwise log2 of the tile side
+	private int tileShift;
+	private int tileColumns; //tiles per row of tiles
+	private long [] tilesClaimed; //one bit per tile, set by the hunt that fills it
+	//the terms of the mana function that depend on x only (one entry per row) or y only (one per column)
+	private double [] xCoord, xCos5, xSin6, xSin;
+	private double [] yCoord, ySin5, yCos4, yLog, ySin;
 
     //constructor
 	public DungeonMap(	double xmin, double xmax, 
 			double ymin, double ymax, 
 			int seed) {
+		this(xmin, xmax, ymin, ymax, seed, true);
+	}
+
+	/*
+	 * withGrid false builds the mana function only, with no grid: for a process that
+	 * stores its own part of the grid (see ShardedHunt). Only evaluateMana may be used.
+	 */
+	DungeonMap(	double xmin, double xmax, 
+			double ymin, double ymax, 
+			int seed, boolean withGrid) {
 		super();
 		this.xmin = xmin;
 		this.xmax = xmax;
@@ -46,6 +79,10 @@ public class DungeonMap {
 
 		this.rows = (int) Math.round((xmax-xmin)*RESOLUTION); //the grid resolution is fixed
 		this.columns =  (int) Math.round((ymax-ymin)*RESOLUTION);//the grid resolution is fixed
+		//the grid is stored flat, indexed by int, and the visited bitmap rounds its size up to 64
+		if (withGrid && (long) rows * columns > Integer.MAX_VALUE - 63)
+			throw new IllegalArgumentException("Dungeon grid of " + rows + " x " + columns + " = " + (long) rows * columns
+					+ " cells is too large: at most " + (Integer.MAX_VALUE - 63) + " cells fit (use ShardedHunt for larger ones)");
 
 		// Randomly place the boss peak
 		Random rand;
@@ -57,28 +94,127 @@ public class DungeonMap {
      // Calculate decay factor based on range
         this.decayFactor = 2.0 / (xRange * 0.1);  // adjust scaling factor to control width
 
-		manaMap = new int[rows][columns];
-		visit = new int[rows][columns];
-		dungeonGridPointsEvaluated=0;
+		buildSeparableTerms();
+		if (!withGrid) return;
+		manaMap = new int[rows*columns];
+		visited = new long[(rows*columns + 63) >>> 6]; //all clear - grid points not yet visited
 
 		/* Terrain initialization */
-		for(int i=0; i<rows; i++ ) {
-			for( int j=0; j<columns; j++ ) {
-				manaMap[i][j] = Integer.MIN_VALUE;; //means mana not yet measured
-				visit[i][j] = -1; //grid point not yet visited
-			}
+		Arrays.fill(manaMap, Integer.MIN_VALUE); //means mana not yet measured
+		VarHandle.releaseFence(); //publish the initialised grid to the hunting threads
+	}
+
+	/*
+	 * Precompute the separable terms of the mana function, exactly as evaluateMana
+	 * used to compute them per cell. The tables are O(rows+columns), tiny next to the grid.
+	 */
+	private void buildSeparableTerms() {
+		xCoord = new double[rows]; xCos5 = new double[rows];
+		xSin6 = new double[rows]; xSin = new double[rows];
+		for (int x = 0; x < rows; x++) {
+			double x_coord = xmin + ( (xmax - xmin) / rows ) * x;
+			xCoord[x] = x_coord;
+			xCos5[x] = 0.1 * Math.cos(x_coord / 5.0);
+			xSin6[x] = 0.2 * Math.sin(x_coord / 6.0);
+			xSin[x] = 0.05 * Math.sin(x_coord);
+		}
+		yCoord = new double[columns]; ySin5 = new double[columns]; yCos4 = new double[columns];
+		yLog = new double[columns]; ySin = new double[columns];
+		for (int y = 0; y < columns; y++) {
+			double y_coord = ymin + ( (ymax - ymin) / columns ) * y;
+			yCoord[y] = y_coord;
+			ySin5[y] = 0.1 * Math.sin(y_coord / 5.0);
+			yCos4[y] = 0.15 * Math.cos(y_coord / 4.0);
+			yLog[y] = -0.2 * Math.log(Math.abs(y_coord - Math.PI * 2) + 0.1);
+			ySin[y] = 0.1 * Math.sin(y_coord);
 		}
 	}
 
 	// has this site been visited before?
 	 boolean visited( int x, int y) {
-		 if (visit[x][y]==-1) return false;
-		 return true;
-}
+		 int index = x*columns+y;
+		 return ((long) BITS.getAcquire(visited, index >>> 6) & (1L << index)) != 0;
+	 }
 
 	 void setVisited( int x, int y, int id) {
-		 if (visit[x][y]==-1) //don't reset
-			 visit[x][y]= id;
+		 tryVisit(x, y, id); //don't reset
+	 }
+
+	 /**
+	  * Atomically claims a site for a hunt.
+	  * Only one hunt can claim a site, so two hunts never walk the same path.
+	  *
+	  * @return true if this hunt claimed the site, false if it was already visited
+	  */
+	 boolean tryVisit( int x, int y, int id) {
+		 int index = x*columns+y;
+		 long bit = 1L << index; //shift uses the low 6 bits
+		 long word = (long) BITS.getAndBitwiseOr(visited, index >>> 6, bit);
+		 if ((word & bit) != 0) return false;
+		 if (owner != null) owner[index] = id; //only the claiming hunt writes here
+		 return true;
+	 }
+
+	 /**
+	  * Keep the id of the hunt that first visits each cell (path attribution),
+	  * at the cost of an int per cell. Off by default: visited() only needs the bitmap.
+	  * Set before hunting starts.
+	  */
+	 public void setOwnerTracking( boolean track) {
+		 owner = track ? new int[rows*columns] : null;
+		 if (track) Arrays.fill(owner, -1);
+	 }
+
+	 /**
+	  * Record, for every visited cell, where its hunt went next, so that a hunt
+	  * running into an earlier path can find the peak of that path (findBasinPeak).
+	  * Costs an int per cell. Set before hunting starts.
+	  */
+	 public void setBasinTracking( boolean track) {
+		 basinLink = track ? new int[rows*columns] : null;
+		 if (track) Arrays.fill(basinLink, -1);
+	 }
+
+	 public boolean isTrackingBasins() {
+		 return basinLink != null;
+	 }
+
+	 // the hunt at (x, y) moved on to (toX, toY) - the same cell for a peak
+	 void setBasinLink( int x, int y, int toX, int toY) {
+		 if (basinLink != null) CELL.setRelease(basinLink, x*columns+y, toX*columns+toY);
+	 }
+
+	 /**
+	  * Follows the recorded paths from (x, y) to the peak they climb to, and points
+	  * every cell on the way straight at that peak (path compression).
+	  * Paths only ever go uphill, so they cannot loop.
+	  *
+	  * @return the flat index (x*columns+y) of the peak, or -1 if a hunt on the way
+	  * has not taken its next step yet
+	  */
+	 int findBasinPeak( int x, int y) {
+		 int start = x*columns+y;
+		 int cell = start;
+		 int next = (int) CELL.getAcquire(basinLink, cell);
+		 while (next != cell) {
+			 if (next < 0) return -1;
+			 cell = next;
+			 next = (int) CELL.getAcquire(basinLink, cell);
+		 }
+		 int peak = cell;
+		 for (cell = start; cell != peak; cell = next) {
+			 next = (int) CELL.getAcquire(basinLink, cell);
+			 CELL.setRelease(basinLink, cell, peak); //racing compressions also write a cell further up
+		 }
+		 return peak;
+	 }
+
+	 /**
+	  * @return the id of the hunt that first visited (x, y), or -1 if none did
+	  * or owners are not tracked. Read once hunting has finished.
+	  */
+	 public int getOwner( int x, int y) {
+		 return owner == null ? -1 : owner[x*columns+y];
 	 }
 
 	 /**
@@ -90,35 +226,154 @@ public class DungeonMap {
 	     * @return A double value representing the mana value at (x, y).
 	     */
 	int getManaLevel( int x, int y) {
-		if (visited(x,y)) return manaMap[x][y];  //don't recalculate 
-		if (manaMap[x][y]>Integer.MIN_VALUE) return manaMap[x][y];  //don't recalculate 
+		return getManaLevel(x, y, x*columns+y);
+	}
+
+	// as above, for a caller that already knows the flat index of (x,y)
+	private int getManaLevel( int x, int y, int index) {
+		int stored = (int) CELL.getAcquire(manaMap, index);
+		if (stored>Integer.MIN_VALUE) {
+			if (HuntStats.ENABLED) HuntStats.cacheHits.increment();
+			return stored;  //don't recalculate 
+		}
+
+		if (tileShift > 0 && claimTile(x, y)) {
+			fillTile(x, y);
+			if (HuntStats.ENABLED) HuntStats.tilesFilled.increment();
+			return (int) CELL.getAcquire(manaMap, index); //filled now, by us or a racing hunt
+		}
+
+		int fixedPoint = evaluateMana(x, y);
+		//publish the value - if another hunt got there first it wrote the same value, so only count once
+		if (CELL.compareAndSet(manaMap, index, Integer.MIN_VALUE, fixedPoint)) {
+			dungeonGridPointsEvaluated.increment();//keep count
+			if (HuntStats.ENABLED) HuntStats.freshEvaluations.increment();
+		} else if (HuntStats.ENABLED) HuntStats.duplicateEvaluations.increment();
+		return fixedPoint;
+	}
+
+	/**
+	 * Evaluates mana for the cells of row x from column yFrom (inclusive) to yTo (exclusive)
+	 * in one batch and writes them to the map. Uses the vector kernel when the
+	 * jdk.incubator.vector module is available; the values are identical to getManaLevel.
+	 */
+	void fillManaRow( int x, int yFrom, int yTo) {
+		fillManaBlock(x, x+1, yFrom, yTo);
+	}
+
+	// the rows xFrom..xTo-1 of a column range, one kernel call per row
+	private void fillManaBlock( int xFrom, int xTo, int yFrom, int yTo) {
+		int[] values = new int[yTo - yFrom];
+		int fresh = 0, cells = (xTo - xFrom) * (yTo - yFrom);
+		for (int x = xFrom; x < xTo; x++) {
+			ManaKernel.INSTANCE.evaluateRow(this, x, yFrom, yTo, values);
+			int base = x*columns;
+			for (int y = yFrom; y < yTo; y++)
+				if (CELL.compareAndSet(manaMap, base+y, Integer.MIN_VALUE, values[y-yFrom])) fresh++;
+		}
+		dungeonGridPointsEvaluated.add(fresh);//keep count
+		if (HuntStats.ENABLED) {
+			HuntStats.freshEvaluations.add(fresh);
+			HuntStats.duplicateEvaluations.add(cells - fresh); //already there: evaluated twice
+		}
+	}
+
+	/**
+	 * Evaluates every cell, rows in parallel (on the ForkJoinPool this is called from, or
+	 * the common pool), and finds the highest mana: the ground truth the hunts approximate.
+	 * With store the values go into the map and count as evaluated, as a hunt's would;
+	 * without, the map is left as it is.
+	 *
+	 * @return the highest mana in the high 32 bits, and the flat index (x*columns+y) of
+	 * its cell, complemented, in the low 32; on a tie, the first cell in row-major order
+	 */
+	long findGlobalPeak( boolean store) {
+		return IntStream.range(0, rows).parallel().mapToLong(x -> rowPeak(x, store)).max().orElse(Long.MIN_VALUE);
+	}
+
+	// findGlobalPeak's key of the highest cell of row x
+	private long rowPeak( int x, boolean store) {
+		int[] values = new int[columns];
+		if (store) {
+			fillManaRow(x, 0, columns);
+			for (int y = 0; y < columns; y++) values[y] = (int) CELL.getAcquire(manaMap, x*columns+y);
+		} else {
+			ManaKernel.INSTANCE.evaluateRow(this, x, 0, columns, values);
+		}
+		int best = 0;
+		for (int y = 1; y < columns; y++)
+			if (values[y] > values[best]) best = y;
+		return (long) values[best] << 32 | (~(x*columns+best) & 0xFFFFFFFFL); //smaller index, bigger key
+	}
+
+	/**
+	 * Switches tiled evaluation on or off. With tiles, the first touch of a cell
+	 * evaluates its whole size x size tile in one batch: more grid points are
+	 * evaluated, but each costs far less and the hunts then find their neighbours
+	 * already measured. Set before hunting starts.
+	 *
+	 * @param size tile side, a power of two (16 or 32 work well), or 0 to evaluate cell by cell
+	 */
+	public void setTileSize( int size) {
+		if (size == 0) {
+			tileShift = 0;
+			tilesClaimed = null;
+			return;
+		}
+		if (size < 2 || Integer.bitCount(size) != 1)
+			throw new IllegalArgumentException("Tile size must be a power of two, or 0 for no tiles");
+		tileShift = Integer.numberOfTrailingZeros(size);
+		tileColumns = (columns + size - 1) >> tileShift;
+		int tiles = ((rows + size - 1) >> tileShift) * tileColumns;
+		tilesClaimed = new long[(tiles + 63) >>> 6];
+	}
+
+	public int getTileSize() {
+		return tileShift == 0 ? 0 : 1 << tileShift;
+	}
+
+	// set the tile's presence bit; true if this call set it, so the caller fills the tile
+	private boolean claimTile( int x, int y) {
+		int tile = (x >> tileShift) * tileColumns + (y >> tileShift);
+		long bit = 1L << tile; //shift uses the low 6 bits
+		long word = (long) BITS.getAndBitwiseOr(tilesClaimed, tile >>> 6, bit);
+		return (word & bit) == 0;
+	}
+
+	private void fillTile( int x, int y) {
+		int x0 = (x >> tileShift) << tileShift, y0 = (y >> tileShift) << tileShift;
+		int size = 1 << tileShift;
+		fillManaBlock(x0, Math.min(x0 + size, rows), y0, Math.min(y0 + size, columns));
+	}
 
-		/* Calculate the coordinates of the point in the ranges */
-		double x_coord = xmin + ( (xmax - xmin) / rows ) * x;
-		double y_coord = ymin + ( (ymax - ymin) / columns ) * y;
+	/**
+	 * The mana function at grid cell (x, y), in fixed point. Does not touch the map.
+	 */
+	int evaluateMana( int x, int y) {
+		/* The coordinates of the point in the ranges */
+		double x_coord = xCoord[x];
+		double y_coord = yCoord[y];
 		double dx = x_coord - bossX;
 		double dy = y_coord - bossY;
 		double distanceSquared = dx * dx + dy * dy;
 		
 		/* The function to compute the mana value value */
 		/*DO NOT CHANGE this - unless you are testing, but then put it back!*/
-		double mana = (2 * Math.sin(x_coord + 0.1 * Math.sin(y_coord / 5.0) + Math.PI / 2) *
-                Math.cos((y_coord + 0.1 * Math.cos(x_coord / 5.0) + Math.PI / 2) / 2.0) +
-            0.7 * Math.sin((x_coord * 0.5) + (y_coord * 0.3) + 0.2 * Math.sin(x_coord / 6.0) + Math.PI / 2) +
-            0.3 * Math.sin((x_coord * 1.5) - (y_coord * 0.8) + 0.15 * Math.cos(y_coord / 4.0)) +
-            -0.2 * Math.log(Math.abs(y_coord - Math.PI * 2) + 0.1) +
-            0.5 * Math.sin((x_coord * y_coord) / 4.0 + 0.05 * Math.sin(x_coord)) +
-            1.5 * Math.cos((x_coord + y_coord) / 5.0 + 0.1 * Math.sin(y_coord)) +
+		/* (buildSeparableTerms and VectorManaKernel hold parts of the same function - keep them in step) */
+		double mana = (2 * Math.sin(x_coord + ySin5[y] + Math.PI / 2) *
+                Math.cos((y_coord + xCos5[x] + Math.PI / 2) / 2.0) +
+            0.7 * Math.sin((x_coord * 0.5) + (y_coord * 0.3) + xSin6[x] + Math.PI / 2) +
+            0.3 * Math.sin((x_coord * 1.5) - (y_coord * 0.8) + yCos4[y]) +
+            yLog[y] +
+            0.5 * Math.sin((x_coord * y_coord) / 4.0 + xSin[x]) +
+            1.5 * Math.cos((x_coord + y_coord) / 5.0 + ySin[y]) +
             3.0 * Math.exp(-0.03 * ((x_coord - bossX - 15) * (x_coord - bossX - 15) +
                                     (y_coord - bossY + 10) * (y_coord - bossY + 10))) +
             8.0 * Math.exp(-0.01 * distanceSquared) +                 
             2.0 / (1.0 + 0.05 * distanceSquared)); 
 		
 		/* Transform to fixed point precision */
-		int fixedPoint = (int)( PRECISION * mana );
-		manaMap[x][y]=fixedPoint;
-		dungeonGridPointsEvaluated++;//keep count
-		return fixedPoint;
+		return (int)( PRECISION * mana );
 	}
 
 	//work out where to go next - move in direction of highest mana
@@ -129,48 +384,87 @@ public class DungeonMap {
      * @return the direction of highest mana.
      */
 	Hunt.Direction getNextStepDirection( int x, int y) {
-		Hunt.Direction climbDirection = Hunt.Direction.STAY;
-	    int localMax = getManaLevel(x, y);
-
-	    // Define directions with (dx, dy)
-	    int[][] directions = {
-	        {-1,  0}, // LEFT
-	        { 1,  0}, // RIGHT
-	        { 0, -1}, // UP
-	        { 0,  1}, // DOWN
-	        {-1, -1}, // UP_LEFT
-	        { 1, -1}, // UP_RIGHT
-	        {-1,  1}, // DOWN_LEFT
-	        { 1,  1}  // DOWN_RIGHT
-	    };
+		return Hunt.Direction.BY_CODE[stepCode(nextStep(x, y))];
+	}
 
-	    Hunt.Direction[] directionEnums = {
-	        Hunt.Direction.LEFT,
-	        Hunt.Direction.RIGHT,
-	        Hunt.Direction.UP,
-	        Hunt.Direction.DOWN,
-	        Hunt.Direction.UP_LEFT,
-	        Hunt.Direction.UP_RIGHT,
-	        Hunt.Direction.DOWN_LEFT,
-	        Hunt.Direction.DOWN_RIGHT
-	    };
+	// Steps by code: code 0 stays put, codes 1-8 are the neighbours in the order they are
+	// tried (so ties go to the earliest), as Hunt.Direction's ordinals.
+	static final int[] STEP_ROW = { 0, -1, 1,  0, 0, -1,  1, -1, 1};
+	static final int[] STEP_COL = { 0,  0, 0, -1, 1, -1, -1,  1, 1};
+	static final int STEP_BITS = 4; //low bits of a packed step hold the code
+	private static final int STEP_MASK = (1 << STEP_BITS) - 1;
+
+	/**
+	 * getNextStepDirection without allocation or enums, for the hunt loop: the step to the
+	 * neighbour with the highest mana, packed with that mana as
+	 * (mana << STEP_BITS) | code. A stay carries the mana of (x, y) itself.
+	 * Mana values are fixed point values of a bounded function, far inside 28 bits.
+	 */
+	int nextStep( int x, int y) {
+		int code = 0;
+	    int localMax = getManaLevel(x, y, x*columns+y);
 
-	    for (int i = 0; i < directions.length; i++) {
-	        int newX = x + directions[i][0];
-	        int newY = y + directions[i][1];
+	    for (int i = 1; i < STEP_ROW.length; i++) {
+	        int newX = x + STEP_ROW[i];
+	        int newY = y + STEP_COL[i];
 
 	        if (newX >= 0 && newX < rows && newY >= 0 && newY < columns) {
-	            int power = getManaLevel(newX, newY);
+	            int power = getManaLevel(newX, newY, newX*columns + newY);
 	            if (power > localMax) {
 	                localMax = power;
-	                climbDirection = directionEnums[i];
+	                code = i;
 	            }
 	        }
 	    }
 
-	    return climbDirection;
+	    return (localMax << STEP_BITS) | code;
+	}
+
+	/**
+	 * nextStep for a caller that owns only some of the cells, (x, y)
+	 * among them: the square tiles of side 1 << tileShift, numbered row-major, whose
+	 * tileOwner entry is owner. Neighbours in other tiles are read from the map if they
+	 * are there and otherwise evaluated without being stored, so the caller writes the
+	 * map in its own region only.
+	 */
+	int nextStepOwned( int x, int y, int[] tileOwner, int tileShift, int owner) {
+		int tileColumns = (columns + (1 << tileShift) - 1) >> tileShift;
+		int code = 0;
+		int localMax = getManaLevel(x, y, x*columns+y);
+
+		for (int i = 1; i < STEP_ROW.length; i++) {
+			int newX = x + STEP_ROW[i];
+			int newY = y + STEP_COL[i];
+
+			if (newX >= 0 && newX < rows && newY >= 0 && newY < columns) {
+				int power = tileOwner[(newX >> tileShift) * tileColumns + (newY >> tileShift)] == owner
+						? getManaLevel(newX, newY, newX*columns + newY) : peekManaLevel(newX, newY);
+				if (power > localMax) {
+					localMax = power;
+					code = i;
+				}
+			}
+		}
+
+		return (localMax << STEP_BITS) | code;
+	}
+
+	// the stored mana of (x, y), or its value evaluated now and not stored
+	private int peekManaLevel( int x, int y) {
+		int stored = (int) CELL.getAcquire(manaMap, x*columns+y);
+		if (stored>Integer.MIN_VALUE) {
+			if (HuntStats.ENABLED) HuntStats.cacheHits.increment();
+			return stored;
+		}
+		if (HuntStats.ENABLED) HuntStats.boundaryEvaluations.increment();
+		return evaluateMana(x, y);
 	}
 
+	static int stepCode(int step) { return step & STEP_MASK; }
+
+	static int stepMana(int step) { return step >> STEP_BITS; }
+
+
 	/**
      * Generates an image from the dungeon grid.
      * Unvisited cells are colored black, while visited cells follow a black→purple→red→white gradient.
@@ -178,41 +472,122 @@ public class DungeonMap {
      * @param filename The name of the output PNG file.
      */
 	public void visualisePowerMap(String filename, boolean path) {
-	    int width = manaMap.length;
-	    int height = manaMap[0].length;
+		BufferedImage[] images = renderPowerMaps(!path, path);
+		writeImage(path ? images[1] : images[0], filename);
+	}
 
-	    //output image
-	    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+	/**
+	 * Generates both images in a single pass over the grid: the full power map,
+	 * and the map of visited cells only.
+	 */
+	public void visualisePowerMaps(String mapFilename, String pathFilename) {
+		BufferedImage[] images = renderPowerMaps(true, true);
+		writeImage(images[0], mapFilename);
+		writeImage(images[1], pathFilename);
+	}
 
-	    // Find min and max for normalization (ignore unvisited sites)
-	    int min = Integer.MAX_VALUE;
-	    int max = Integer.MIN_VALUE;	    
-	    
-	    for (int x = 0; x < width; x++) {
+	/*
+	 * Render the requested images: {full map, path only}. Rows of the grid are
+	 * coloured in parallel, through the palette, straight into the images' pixel arrays.
+	 */
+	private BufferedImage[] renderPowerMaps(boolean full, boolean path) {
+	    int width = rows;
+	    int height = columns;
+	    BufferedImage fullImage = full ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB) : null;
+	    BufferedImage pathImage = path ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB) : null;
+	    int[] fullPixels = full ? pixels(fullImage) : null;
+	    int[] pathPixels = path ? pixels(pathImage) : null;
+
+	    int[] range = manaRange();
+	    int lowest = range[0];
+	    long span = range[1] - (long) range[0];
+
+	    // Map height values to colours: cell (x, y) is pixel (x, height-1-y)
+	    IntStream.range(0, width).parallel().forEach(x -> {
 	        for (int y = 0; y < height; y++) {
-	            int value = manaMap[x][y];
+	            int rgb = colourOf(manaMap[x*height+y], lowest, span);
+	            int pixel = (height - 1 - y) * width + x;
+	            if (fullPixels != null) fullPixels[pixel] = rgb;
+	            if (pathPixels != null) pathPixels[pixel] = visited(x, y) ? rgb : BLACK; //view path only, all not visited black
+	        }
+	    });
+	    return new BufferedImage[] {fullImage, pathImage};
+	}
+
+	/**
+	 * Writes the power map as a PNG without building the image in memory: rows are
+	 * coloured and compressed a band at a time, in parallel (see PngStreamWriter).
+	 * Use for dungeons whose image would not fit in the heap.
+	 *
+	 * @param path view the path only, as in visualisePowerMap
+	 * @param downsample write every downsample-th row and column only (1 = full size),
+	 * at most the smaller side of the grid
+	 */
+	public void streamPowerMap(String filename, boolean path, int downsample) {
+	    if (downsample < 1 || downsample > Math.min(rows, columns))
+	        throw new IllegalArgumentException("Downsample factor must be from 1 to " + Math.min(rows, columns));
+	    int[] range = manaRange();
+	    int lowest = range[0];
+	    long span = range[1] - (long) range[0];
+	    PngStreamWriter.RowSource source = (imageRow, rgb) -> {
+	        int y = columns - 1 - imageRow;
+	        for (int x = 0; x < rows; x++) {
+	            rgb[x] = (path && !visited(x, y)) ? BLACK : colourOf(manaMap[x*columns+y], lowest, span);
+	        }
+	    };
+	    int width = rows, height = columns;
+	    if (downsample > 1) {
+	        source = PngStreamWriter.downsample(source, rows, downsample);
+	        width = rows / downsample;
+	        height = columns / downsample;
+	    }
+	    try {
+	        PngStreamWriter.write(filename, width, height, source);
+	        System.out.println("map saved to " + filename);
+	    } catch (Exception e) {
+	        e.printStackTrace();
+	    }
+	}
+
+	// RGB of a mana value in a map whose values run from lowest to lowest+span
+	private static int colourOf(int value, int lowest, long span) {
+	    if (value==Integer.MIN_VALUE) return BLACK; // not evaluated black
+	    return PALETTE[(int) (((long) value - lowest) * (PALETTE.length - 1) / span)];
+	}
+
+	/*
+	 * {min, max} of the evaluated mana values, for normalization (ignores unvisited sites).
+	 * A row at a time in parallel. The span max-min is at least 1.
+	 */
+	private int[] manaRange() {
+	    int width = rows, height = columns;
+	    int[] rowMin = new int[width], rowMax = new int[width];
+	    IntStream.range(0, width).parallel().forEach(x -> {
+	        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+	        for (int i = x*height, end = i+height; i < end; i++) {
+	            int value = manaMap[i];
 	            if (value==Integer.MIN_VALUE)  continue; // ignore unvisited sites
 	            if (value < min) min = value;
 	            if (value > max) max = value;
 	        }
+	        rowMin[x] = min;
+	        rowMax[x] = max;
+	    });
+	    int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+	    for (int x = 0; x < width; x++) {
+	        min = Math.min(min, rowMin[x]);
+	        max = Math.max(max, rowMax[x]);
 	    }
 	    // Prevent division by zero if everything has the same value
-	    double range = (max > min) ? (max - min) : 1.0;
+	    if (max <= min) max = min + 1;
+	    return new int[] {min, max};
+	}
 
-	    // Map height values to colors
-	    for (int x = 0; x < width; x++) {
-	        for (int y = 0; y < height; y++) {
-	            Color color;
+	private static int[] pixels(BufferedImage image) {
+	    return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
 
-	            if (path && !visited(x, y)) color = Color.BLACK; //view path only, all not visited black
-	            else if (manaMap[x][y]==Integer.MIN_VALUE) color = Color.BLACK; // not evaluated black
-	            else {
-	                double normalized = (manaMap[x][y] - min) / range; // 0–1
-	                color = mapHeightToColor(normalized);
-	            }
-	            image.setRGB(x, height - 1 - y, color.getRGB());
-	        }
-	    }
+	private static void writeImage(BufferedImage image, String filename) {
 	    try {
 	        File output = new File(filename);
 	        ImageIO.write(image, "png", output);
@@ -222,10 +597,18 @@ public class DungeonMap {
 	    }
 	}
 
+	private static final int BLACK = 0x000000;
+	// normalized height [0..1] in PALETTE.length steps, as RGB
+	private static final int[] PALETTE = new int[1024];
+	static {
+	    for (int i = 0; i < PALETTE.length; i++)
+	        PALETTE[i] = mapHeightToColor(i / (double) (PALETTE.length - 1));
+	}
+
 	/**
 	 * Maps normalized height [0..1] to black → purple → red → white.
 	 */
-	private Color mapHeightToColor(double normalized) {
+	private static int mapHeightToColor(double normalized) {
 	    normalized = Math.max(0, Math.min(1, normalized)); // clamp to [0,1]
 
 	    int r = 0, g = 0, b = 0;
@@ -252,20 +635,59 @@ public class DungeonMap {
 	        b = (int) (255 * t);
 	    }
 
-	    return new Color(r, g, b);
+	    return (r << 16) | (g << 8) | b;
+	}
+
+	/**
+	 * Fills the map with the mana values an earlier run cached in dir for this dungeon (see ManaCache).
+	 * Call before hunting. Loaded cells are not counted as evaluated by this run.
+	 *
+	 * @return the number of cells loaded
+	 */
+	public int loadManaCache(Path dir) throws IOException {
+		int loaded = ManaCache.load(dir.resolve(manaCacheName()), manaCacheKey(), manaMap);
+		VarHandle.releaseFence(); //publish the loaded cells to the hunting threads
+		return loaded;
+	}
+
+	/** Adds the cells evaluated so far to the cache for this dungeon in dir. Call once hunting is over. */
+	public void saveManaCache(Path dir) throws IOException {
+		Files.createDirectories(dir);
+		ManaCache.save(dir.resolve(manaCacheName()), manaCacheKey(), manaMap);
+	}
+
+	String manaCacheName() {
+		return ManaCache.fileName(rows, columns, manaCacheKey());
+	}
+
+	// everything the mana of a cell depends on
+	private double[] manaCacheKey() {
+		return new double[] {rows, columns, PRECISION, RESOLUTION, xmin, xmax, ymin, ymax, bossX, bossY, decayFactor};
 	}
 
 	public int getGridPointsEvaluated() {
-		return dungeonGridPointsEvaluated;
+		return dungeonGridPointsEvaluated.intValue();
 	}
 
 	public double getXcoord(int x) {
-		return xmin + ( (xmax - xmin) / rows ) * x;
+		return xCoord[x];
 	}
 	public double getYcoord(int y) {
-		return ymin + ( (ymax - ymin) / columns ) * y;
+		return yCoord[y];
 	}
 
+	// separable terms, grid geometry and boss position, for the batch kernels
+	double[] getYcoords() { return yCoord; }
+	double[] getYsin5() { return ySin5; }
+	double[] getYcos4() { return yCos4; }
+	double[] getYlog() { return yLog; }
+	double[] getYsin() { return ySin; }
+	double getXcos5(int x) { return xCos5[x]; }
+	double getXsin6(int x) { return xSin6[x]; }
+	double getXsin(int x) { return xSin[x]; }
+	double getBossX() { return bossX; }
+	double getBossY() { return bossY; }
+
 	public int getRows() {
 		return rows;
 	}
@@ -8,23 +8,38 @@
  *M. Kuttel 2025
  */
 
+import java.util.Arrays;
+
 public class Hunt {
 	private int id;						//  identifier for this hunt
 	private int posRow, posCol;		// Position in the dungeonMap
 	private int steps; 				//number of steps to end of the search
 	private boolean stopped;	// Did the search hit a previously searched location?
+	private boolean resolved;	// Has a stopped search been traced to the peak of the path it hit?
 
 	private DungeonMap dungeon;
+	// mana of the 3x3 neighbourhood of the hunt, at (dRow+1)*3 + dCol+1 from its position.
+	// It slides with each step, so only the newly exposed cells are read from the map again.
+	private final int[] window = new int[9]; //Integer.MIN_VALUE: not read yet, or off the grid
 	public enum Direction {
-	    STAY,
-	    LEFT,
-	    RIGHT,
-	    UP,
-	    DOWN,
-	    UP_LEFT,
-	    UP_RIGHT,
-	    DOWN_LEFT,
-	    DOWN_RIGHT
+	    STAY(0, 0),
+	    LEFT(-1, 0),
+	    RIGHT(1, 0),
+	    UP(0, -1),
+	    DOWN(0, 1),
+	    UP_LEFT(-1, -1),
+	    UP_RIGHT(1, -1),
+	    DOWN_LEFT(-1, 1),
+	    DOWN_RIGHT(1, 1);
+
+	    final int dRow, dCol; //change in position for one step
+
+	    static final Direction[] BY_CODE = values(); //ordinal = step code of DungeonMap.nextStep
+
+	    Direction(int dRow, int dCol) {
+	        this.dRow = dRow;
+	        this.dCol = dCol;
+	    }
 	}
 
 	public Hunt(int id, int pos_row, int pos_col, DungeonMap dungeon) {
@@ -36,55 +51,93 @@ public class Hunt {
 	}
 
 	/**
-     * Find the local maximum mana from an initial starting point
+     * Find the local maximum mana from an initial starting point.
+     * With basin tracking on the map, a search that runs into an earlier path
+     * follows it to its peak (see resolvePeak).
      * 
      * @return the highest power/mana located
      */
 	public int findManaPeak() {
 		int power=Integer.MIN_VALUE;
-		Direction next = Direction.STAY;
-		
-		while(!dungeon.visited(posRow, posCol)) { // stop when hit existing path
-			power=dungeon.getManaLevel(posRow, posCol);
-			dungeon.setVisited(posRow, posCol, id);
+		Arrays.fill(window, Integer.MIN_VALUE);
+		while(dungeon.tryVisit(posRow, posCol, id)) { // stop when hit existing path
+			power = windowMana(4);
 			steps++;
-			next = dungeon.getNextStepDirection(posRow, posCol);
-			if(DungeonHunter.DEBUG) System.out.println("Shadow "+getID()+" moving  "+next);
-			switch(next) {
-				case STAY: return power; //found local valley
-				case LEFT:
-					posRow--;
-					break;
-				case RIGHT:
-					posRow=posRow+1;
-					break;
-				case UP:
-					posCol=posCol-1;
-					break;
-				case DOWN:
-					posCol=posCol+1;
-					break;
-				case UP_LEFT:
-					posCol=posCol-1;
-					posRow--;
-					break;
-				case UP_RIGHT:
-					posCol=posCol-1;
-					posRow=posRow+1;
-					break;
-				case DOWN_LEFT:
-					posCol=posCol+1; //fixed BUG!!!
-					posRow--;
-					break;
-				case DOWN_RIGHT:
-					posCol=posCol+1;
-					posRow=posRow+1;
+			int code = stepInWindow();
+			if(DungeonHunter.DEBUG) System.out.println("Shadow "+getID()+" moving  "+Direction.BY_CODE[code]);
+			if (code == 0) {
+				dungeon.setBasinLink(posRow, posCol, posRow, posCol); //a peak is its own basin
+				return power; //found local valley
 			}
+			int fromRow=posRow, fromCol=posCol;
+			posRow += DungeonMap.STEP_ROW[code];
+			posCol += DungeonMap.STEP_COL[code];
+			slideWindow(DungeonMap.STEP_ROW[code], DungeonMap.STEP_COL[code]);
+			dungeon.setBasinLink(fromRow, fromCol, posRow, posCol);
 		}
 		stopped=true;
+		if (dungeon.isTrackingBasins()) {
+			int peak = resolvePeak();
+			if (peak != Integer.MIN_VALUE) return peak;
+		}
 		return power;
 	}
 
+	// DungeonMap.nextStep, on the window: the code of the best step
+	private int stepInWindow() {
+		int code = 0;
+		int localMax = windowMana(4);
+		for (int i = 1; i < DungeonMap.STEP_ROW.length; i++) {
+			int power = windowMana((DungeonMap.STEP_ROW[i] + 1) * 3 + DungeonMap.STEP_COL[i] + 1);
+			if (power > localMax) { //cells off the grid hold MIN_VALUE, so never win
+				localMax = power;
+				code = i;
+			}
+		}
+		return code;
+	}
+
+	// mana of window cell k, read from the map the first time it is needed
+	private int windowMana(int k) {
+		if (window[k] == Integer.MIN_VALUE) {
+			int row = posRow + k / 3 - 1, col = posCol + k % 3 - 1;
+			if (row >= 0 && row < dungeon.getRows() && col >= 0 && col < dungeon.getColumns())
+				window[k] = dungeon.getManaLevel(row, col);
+		}
+		return window[k];
+	}
+
+	// after a step of (dRow, dCol): keep the cells still in the window, forget the rest.
+	// In place, visiting cells so that each is read before it is overwritten.
+	private void slideWindow(int dRow, int dCol) {
+		for (int i = 0; i < 3; i++) {
+			int r = dRow > 0 ? i : 2 - i;
+			for (int j = 0; j < 3; j++) {
+				int c = dCol > 0 ? j : 2 - j;
+				int fromR = r + dRow, fromC = c + dCol;
+				window[r * 3 + c] = (fromR >= 0 && fromR < 3 && fromC >= 0 && fromC < 3)
+						? window[fromR * 3 + fromC] : Integer.MIN_VALUE;
+			}
+		}
+	}
+
+	/**
+	 * For a search that stopped on an earlier path: follow that path to the peak it reaches,
+	 * and move this search there. Needs basin tracking on the map.
+	 * The other search may still be climbing, in which case the peak is not known yet;
+	 * calling again once all searches have finished always succeeds.
+	 *
+	 * @return the mana at the peak, or Integer.MIN_VALUE if it is not known yet
+	 */
+	public int resolvePeak() {
+		int peak = dungeon.findBasinPeak(posRow, posCol);
+		if (peak < 0) return Integer.MIN_VALUE;
+		posRow = peak / dungeon.getColumns();
+		posCol = peak % dungeon.getColumns();
+		resolved = true;
+		return dungeon.getManaLevel(posRow, posCol);
+	}
+
 	public int getID() { return id; }
 
 	public int getPosRow() { return posRow;}
@@ -95,4 +148,6 @@ public class Hunt {
 	
 	public boolean isStopped() {return stopped;}
 
+	public boolean isResolved() {return resolved;}
+
 }
@@ -0,0 +1,171 @@
+/**
+ * HuntBatch.java
+ *
+ * The searches of a run as parallel primitive arrays instead of one Hunt object each:
+ * the position, steps, mana and status of search i are element i of each array.
+ * A range of searches is climbed in lock-step, one step of every active search per
+ * round, and searches that finish are compacted out of the active list, so the
+ * independent map reads of many searches overlap instead of one search's reads
+ * waiting on the last.
+ *
+ * A search follows the rules of Hunt.findManaPeak (basin tracking included),
+ * and the accessors give the same results a Hunt would.
+ */
+final class HuntBatch {
+	static final byte RUNNING = 0, AT_PEAK = 1, STOPPED = 2, RESOLVED = 3;
+
+	private final DungeonMap dungeon;
+	private final int[] posRow, posCol;	// position of each search
+	private final int[] steps;			// steps taken
+	private final int[] power;			// mana at the last cell visited; the peak once finished
+	private final int[] ahead;			// mana at the current position, known from the step that came here
+	private final byte[] status;
+
+	HuntBatch(DungeonMap dungeon, int numSearches) {
+		this.dungeon = dungeon;
+		posRow = new int[numSearches];
+		posCol = new int[numSearches];
+		steps = new int[numSearches];
+		power = new int[numSearches];
+		ahead = new int[numSearches];
+		status = new byte[numSearches];
+	}
+
+	/**
+	 * Places searches [from, to) as DungeonHunter.huntRange does and climbs them all
+	 * to the end, in lock-step. With an order, the searches are order[from] to order[to - 1].
+	 *
+	 * @return the highest peak found
+	 */
+	int huntRange(int from, int to, long seed, int[] order) {
+		int[] active = new int[to - from];
+		int count = 0;
+		for (int k = from; k < to; k++) {
+			int i = order != null ? order[k] : k;
+			place(i, seed);
+			active[count++] = i;
+		}
+		int max = Integer.MIN_VALUE;
+		while (count > 0) {
+			int kept = 0;
+			for (int a = 0; a < count; a++) {
+				int i = active[a];
+				if (advance(i)) {
+					active[kept++] = i;
+				} else {
+					max = Math.max(max, power[i]);
+					if (HuntStats.ENABLED) HuntStats.searchFinished(steps[i], status[i] != AT_PEAK);
+				}
+			}
+			count = kept; //finished searches compacted out
+		}
+		return max;
+	}
+
+	/** Puts search i at its start position, as DungeonHunter.huntRange does. */
+	void place(int i, long seed) {
+		long start = DungeonHunter.startBits(seed, i);
+		posRow[i] = DungeonHunter.startRow(start, dungeon.getRows());
+		posCol[i] = DungeonHunter.startCol(start, dungeon.getColumns());
+		power[i] = ahead[i] = Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Climbs search i as huntRange does while it stays in the tiles of owner (as in
+	 * DungeonMap.nextStepOwned), writing the map in those tiles only.
+	 * A search that runs into an earlier path is left for resolveMergedHunts.
+	 *
+	 * @return true once the search has finished, false when it has stepped out of the region
+	 */
+	boolean climbOwned(int i, int[] tileOwner, int tileShift, int owner) {
+		int tileColumns = (dungeon.getColumns() + (1 << tileShift) - 1) >> tileShift;
+		while (true) {
+			int row = posRow[i], col = posCol[i];
+			if (tileOwner[(row >> tileShift) * tileColumns + (col >> tileShift)] != owner) return false;
+			if (!dungeon.tryVisit(row, col, i + 1)) { // stop when hit existing path
+				status[i] = STOPPED;
+				return true;
+			}
+			power[i] = ahead[i] != Integer.MIN_VALUE ? ahead[i] : dungeon.getManaLevel(row, col);
+			steps[i]++;
+			int step = dungeon.nextStepOwned(row, col, tileOwner, tileShift, owner);
+			int code = DungeonMap.stepCode(step);
+			if (code == 0) {
+				dungeon.setBasinLink(row, col, row, col); //a peak is its own basin
+				status[i] = AT_PEAK;
+				return true;
+			}
+			posRow[i] = row + DungeonMap.STEP_ROW[code];
+			posCol[i] = col + DungeonMap.STEP_COL[code];
+			ahead[i] = DungeonMap.stepMana(step);
+			dungeon.setBasinLink(row, col, posRow[i], posCol[i]);
+		}
+	}
+
+	/** The mana search i reported: its peak once it has finished. */
+	int getPower(int i) { return power[i]; }
+
+	boolean isAtPeak(int i) { return status[i] == AT_PEAK; }
+
+	// one turn of Hunt.findManaPeak's loop for search i; false once the search has finished
+	private boolean advance(int i) {
+		int row = posRow[i], col = posCol[i];
+		if (!dungeon.tryVisit(row, col, i + 1)) { // stop when hit existing path
+			status[i] = STOPPED;
+			if (dungeon.isTrackingBasins()) resolvePeak(i);
+			return false;
+		}
+		power[i] = ahead[i] != Integer.MIN_VALUE ? ahead[i] : dungeon.getManaLevel(row, col);
+		steps[i]++;
+		int step = dungeon.nextStep(row, col);
+		int code = DungeonMap.stepCode(step);
+		if (code == 0) {
+			dungeon.setBasinLink(row, col, row, col); //a peak is its own basin
+			status[i] = AT_PEAK;
+			return false;
+		}
+		posRow[i] = row + DungeonMap.STEP_ROW[code];
+		posCol[i] = col + DungeonMap.STEP_COL[code];
+		ahead[i] = DungeonMap.stepMana(step);
+		dungeon.setBasinLink(row, col, posRow[i], posCol[i]);
+		return true;
+	}
+
+	/**
+	 * As Hunt.resolvePeak, for search i: move a search that stopped on an earlier path
+	 * to that path's peak.
+	 *
+	 * @return the mana at the peak, or Integer.MIN_VALUE if it is not known yet
+	 */
+	int resolvePeak(int i) {
+		int peak = dungeon.findBasinPeak(posRow[i], posCol[i]);
+		if (peak < 0) return Integer.MIN_VALUE;
+		posRow[i] = peak / dungeon.getColumns();
+		posCol[i] = peak % dungeon.getColumns();
+		status[i] = RESOLVED;
+		return power[i] = dungeon.getManaLevel(posRow[i], posCol[i]);
+	}
+
+	/** With basin tracking: resolves the searches that hit a path still being climbed; returns the highest peak. */
+	int resolveMergedHunts() {
+		int max = Integer.MIN_VALUE;
+		for (int i = 0; i < status.length; i++)
+			if (status[i] == STOPPED) max = Math.max(max, resolvePeak(i));
+		return max;
+	}
+
+	/** The peak each search reported, as DungeonHunter's peakValues. Not a copy. */
+	int[] peakValues() { return power; }
+
+	int getID(int i) { return i + 1; }
+
+	int getPosRow(int i) { return posRow[i]; }
+
+	int getPosCol(int i) { return posCol[i]; }
+
+	int getSteps(int i) { return steps[i]; }
+
+	boolean isStopped(int i) { return status[i] >= STOPPED; }
+
+	boolean isResolved(int i) { return status[i] == RESOLVED; }
+}
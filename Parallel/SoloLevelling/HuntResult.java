@@ -0,0 +1,35 @@
+/**
+ * HuntResult.java
+ *
+ * Outcome of one run of DungeonHunter.hunt: the highest peak found, where, and what
+ * it cost. Lets benchmarks and harnesses call the hunt in process instead of
+ * parsing the printed report.
+ *
+ * @param numSearches    number of searches run
+ * @param startNanos     System.nanoTime() when the searches started
+ * @param endNanos       System.nanoTime() when the last search (and basin resolution) finished
+ * @param maxMana        highest mana found
+ * @param peakRow        grid row of the highest mana
+ * @param peakCol        grid column of the highest mana
+ * @param peakX          x coordinate of the highest mana
+ * @param peakY          y coordinate of the highest mana
+ * @param finder         id of the first search that reported the highest mana
+ * @param gridPointsEvaluated number of grid points whose mana was computed
+ * @param gridPoints     rows x columns of the dungeon
+ * @param stepsHistogram stepsHistogram[0] searches took no steps, stepsHistogram[k]
+ *                       took 2^(k-1) to 2^k - 1 steps
+ */
+record HuntResult(int numSearches, long startNanos, long endNanos,
+		int maxMana, int peakRow, int peakCol, double peakX, double peakY, int finder,
+		int gridPointsEvaluated, long gridPoints, int[] stepsHistogram) {
+
+	long elapsedNanos() { return endNanos - startNanos; }
+
+	double elapsedMillis() { return elapsedNanos() / 1e6; }
+
+	/** Percentage of the grid whose mana was computed. */
+	double evaluatedPercent() { return gridPointsEvaluated * 100.0 / gridPoints; }
+
+	/** The bucket of stepsHistogram a search of this many steps falls in. */
+	static int stepsBucket(int steps) { return 32 - Integer.numberOfLeadingZeros(steps); }
+}
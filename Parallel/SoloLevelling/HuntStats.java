@@ -0,0 +1,149 @@
+/**
+ * HuntStats.java
+ *
+ * Instrumentation of the hunt hot path: striped counters and Java Flight Recorder events.
+ * Off unless the JVM is started with -Dhunt.stats=true. ENABLED is a static final
+ * constant, so when it is false the JIT folds away every block guarded by it and the
+ * hot path is the same as without instrumentation.
+ *
+ * With stats on, every search commits a dungeon.Hunt event and every DungeonHunter.hunt
+ * run a dungeon.HuntRun event, for example with
+ *   java -Dhunt.stats=true -XX:StartFlightRecording=filename=hunt.jfr DungeonHunter 100 0.2 42
+ */
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+final class HuntStats {
+
+	static final boolean ENABLED = Boolean.getBoolean("hunt.stats");
+
+	// getManaLevel calls answered from the map, and cells whose mana was computed
+	static final LongAdder cacheHits = new LongAdder();
+	static final LongAdder freshEvaluations = new LongAdder();
+	// cells computed by a hunt that then lost the race to publish them
+	static final LongAdder duplicateEvaluations = new LongAdder();
+	// cells outside a domain worker's region, evaluated for a comparison and not stored
+	static final LongAdder boundaryEvaluations = new LongAdder();
+	static final LongAdder tilesFilled = new LongAdder();
+	static final LongAdder steps = new LongAdder();
+	// how the searches ended: at a local maximum, or on a cell another search had visited
+	static final LongAdder endedAtPeak = new LongAdder();
+	static final LongAdder endedOnPath = new LongAdder();
+	// domain engine: searches passed to the owner of the tile they stepped into, and idle waits
+	static final LongAdder handoffs = new LongAdder();
+	static final LongAdder parks = new LongAdder();
+	private static final Map<String, LongAdder> huntsPerWorker = new ConcurrentHashMap<>();
+	private static volatile long steals;
+
+	private HuntStats() {}
+
+	@Name("dungeon.Hunt")
+	@Label("Hunt")
+	@Category("Dungeon Hunter")
+	@Description("One search, from its start to where it stopped")
+	static final class HuntEvent extends Event {
+		@Label("Search id") int id;
+		@Label("Start row") int startRow;
+		@Label("Start column") int startCol;
+		@Label("Steps") int steps;
+		@Label("Termination") @Description("peak, or visited if it ran into an earlier path") String termination;
+		@Label("Mana") int mana;
+	}
+
+	@Name("dungeon.HuntRun")
+	@Label("Hunt run")
+	@Category("Dungeon Hunter")
+	@Description("All searches of one DungeonHunter.hunt call")
+	static final class RunEvent extends Event {
+		@Label("Engine") String engine;
+		@Label("Searches") int numSearches;
+		@Label("Grid points evaluated") int evaluated;
+		@Label("Cache hits") long cacheHits;
+		@Label("Duplicate evaluations") long duplicateEvaluations;
+		@Label("ForkJoinPool steals") long steals;
+	}
+
+	/** Clears the counters; DungeonHunter.hunt calls this as a run starts. */
+	static void reset() {
+		cacheHits.reset();
+		freshEvaluations.reset();
+		duplicateEvaluations.reset();
+		boundaryEvaluations.reset();
+		tilesFilled.reset();
+		steps.reset();
+		endedAtPeak.reset();
+		endedOnPath.reset();
+		handoffs.reset();
+		parks.reset();
+		huntsPerWorker.clear();
+		steals = 0;
+	}
+
+	/** Starts timing the event of a search about to climb from its start position. */
+	static HuntEvent huntStarted(Hunt hunt) {
+		HuntEvent event = new HuntEvent();
+		event.id = hunt.getID();
+		event.startRow = hunt.getPosRow();
+		event.startCol = hunt.getPosCol();
+		event.begin();
+		return event;
+	}
+
+	static void huntFinished(HuntEvent event, Hunt hunt, int mana) {
+		searchFinished(hunt.getSteps(), hunt.isStopped());
+		if (event.shouldCommit()) {
+			event.steps = hunt.getSteps();
+			event.termination = hunt.isStopped() ? "visited" : "peak";
+			event.mana = mana;
+			event.commit();
+		}
+	}
+
+	/** Counts a finished search; the batch engine, which has no Hunt objects, reports only this. */
+	static void searchFinished(int searchSteps, boolean onPath) {
+		steps.add(searchSteps);
+		(onPath ? endedOnPath : endedAtPeak).increment();
+		Thread worker = Thread.currentThread();
+		huntsPerWorker.computeIfAbsent(worker.isVirtual() ? "virtual threads" : worker.getName(),
+				name -> new LongAdder()).increment();
+	}
+
+	static void runFinished(String engine, int numSearches, int evaluated, long poolSteals) {
+		steals = poolSteals;
+		RunEvent event = new RunEvent();
+		if (event.shouldCommit()) {
+			event.engine = engine;
+			event.numSearches = numSearches;
+			event.evaluated = evaluated;
+			event.cacheHits = cacheHits.sum();
+			event.duplicateEvaluations = duplicateEvaluations.sum();
+			event.steals = poolSteals;
+			event.commit();
+		}
+	}
+
+	/** The counters of the last run, one per line. */
+	static String report() {
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("\t mana cache hits: %d, fresh evaluations: %d, duplicate evaluations: %d, tiles filled: %d%n",
+				cacheHits.sum(), freshEvaluations.sum(), duplicateEvaluations.sum(), tilesFilled.sum()));
+		out.append(String.format("\t steps: %d, ended at a peak: %d, ended on a visited cell: %d%n",
+				steps.sum(), endedAtPeak.sum(), endedOnPath.sum()));
+		out.append(String.format("\t ForkJoinPool steals: %d%n", steals));
+		if (handoffs.sum() + parks.sum() + boundaryEvaluations.sum() > 0)
+			out.append(String.format("\t domain hand-offs: %d, idle waits: %d, boundary evaluations: %d%n",
+					handoffs.sum(), parks.sum(), boundaryEvaluations.sum()));
+		new TreeMap<>(huntsPerWorker).forEach((worker, hunts) ->
+				out.append(String.format("\t hunts by %s: %d%n", worker, hunts.sum())));
+		return out.toString();
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * ManaCache.java
+ *
+ * On-disk cache of evaluated mana, so repeated runs on the same dungeon start with the
+ * cells earlier runs computed. The mana field depends only on the dungeon's limits,
+ * grid size and boss position (the seed), which together form the key of a cache file.
+ *
+ * File layout, native byte order, read and written through memory maps:
+ *   header   HEADER_BYTES: magic, version, key length, then the key as doubles
+ *   bitmap   one bit per cell, set when the cell's value is valid
+ *   values   one int per cell, in DungeonMap's flat row-major order
+ * Readers take a shared lock and writers an exclusive one, so several runs can
+ * share a cache directory.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class ManaCache {
+
+	private static final long MAGIC = 0x4d414e4143414348L; // "MANACACH"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 128;
+	private static final int CHUNK_CELLS = 1 << 28; //values are mapped at most 1 GB at a time
+
+	private ManaCache() {}
+
+	/** File name for a dungeon with this key: the grid size and a hash of the rest. */
+	static String fileName(int rows, int columns, double[] key) {
+		long hash = 0xcbf29ce484222325L; // FNV-1a over the bits of the key
+		for (double k : key) {
+			hash ^= Double.doubleToLongBits(k);
+			hash *= 0x100000001b3L;
+		}
+		return String.format("mana-%dx%d-%016x.cache", rows, columns, hash);
+	}
+
+	/**
+	 * Copies the valid cells of the cache file into mana, leaving the other cells as they are.
+	 * Call before any hunt uses the map.
+	 *
+	 * @return the number of cells loaded, 0 if there is no cache file for this key
+	 */
+	@SuppressWarnings("try") // the locks are held for the block, never referenced
+	static int load(Path file, double[] key, int[] mana) throws IOException {
+		if (!Files.exists(file)) return 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+				FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+			long words = words(mana.length);
+			if (channel.size() != fileSize(mana.length) || !headerMatches(channel, key)) return 0;
+
+			LongBuffer bitmap = map(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES, words * 8).asLongBuffer();
+			int count = 0;
+			for (int from = 0; from < mana.length; from += CHUNK_CELLS) {
+				int length = Math.min(CHUNK_CELLS, mana.length - from);
+				IntBuffer values = map(channel, FileChannel.MapMode.READ_ONLY,
+						valuesOffset(mana.length) + 4L * from, 4L * length).asIntBuffer();
+				for (int i = 0; i < length; i += 64) {
+					long valid = bitmap.get((from + i) >>> 6);
+					if (valid == 0) continue;
+					int n = Math.min(64, length - i);
+					if (valid == -1L && n == 64) {
+						values.get(i, mana, from + i, 64); //straight from the mapping, no scratch copy
+					} else {
+						for (long bits = valid; bits != 0; bits &= bits - 1) {
+							int b = Long.numberOfTrailingZeros(bits);
+							if (b < n) mana[from + i + b] = values.get(i + b);
+						}
+					}
+					count += Long.bitCount(n == 64 ? valid : valid & ((1L << n) - 1));
+				}
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Adds the evaluated cells of mana (those not Integer.MIN_VALUE) to the cache file,
+	 * keeping the cells other runs have added. A file for another key, or of the wrong
+	 * size, is replaced.
+	 */
+	@SuppressWarnings("try")
+	static void save(Path file, double[] key, int[] mana) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+				FileLock lock = channel.lock()) {
+			long words = words(mana.length);
+			if (channel.size() != fileSize(mana.length) || !headerMatches(channel, key)) {
+				channel.truncate(0); //stale: start again, zeros are an empty bitmap
+				channel.write(ByteBuffer.allocate(1), fileSize(mana.length) - 1);
+			}
+
+			MappedByteBuffer bitmapRegion = map(channel, FileChannel.MapMode.READ_WRITE, HEADER_BYTES, words * 8);
+			LongBuffer bitmap = bitmapRegion.asLongBuffer();
+			for (int from = 0; from < mana.length; from += CHUNK_CELLS) {
+				int length = Math.min(CHUNK_CELLS, mana.length - from);
+				MappedByteBuffer region = map(channel, FileChannel.MapMode.READ_WRITE,
+						valuesOffset(mana.length) + 4L * from, 4L * length);
+				IntBuffer values = region.asIntBuffer();
+				for (int i = 0; i < length; i += 64) {
+					int n = Math.min(64, length - i);
+					long ours = 0;
+					for (int b = 0; b < n; b++)
+						if (mana[from + i + b] != Integer.MIN_VALUE) ours |= 1L << b;
+					if (ours == 0) continue;
+					if (ours == -1L) {
+						values.put(i, mana, from + i, 64);
+					} else {
+						for (long bits = ours; bits != 0; bits &= bits - 1) {
+							int b = Long.numberOfTrailingZeros(bits);
+							values.put(i + b, mana[from + i + b]);
+						}
+					}
+					int word = (from + i) >>> 6;
+					bitmap.put(word, bitmap.get(word) | ours);
+				}
+				region.force();
+			}
+			bitmapRegion.force();
+
+			MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+			header.putLong(MAGIC).putInt(VERSION).putInt(key.length);
+			for (double k : key) header.putDouble(k);
+			header.force(); //written last: a file without a header is never read
+		}
+	}
+
+	private static boolean headerMatches(FileChannel channel, double[] key) throws IOException {
+		MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+		if (header.getLong() != MAGIC || header.getInt() != VERSION || header.getInt() != key.length) return false;
+		for (double k : key)
+			if (Double.doubleToLongBits(header.getDouble()) != Double.doubleToLongBits(k)) return false;
+		return true;
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long offset, long size)
+			throws IOException {
+		MappedByteBuffer buffer = channel.map(mode, offset, size);
+		buffer.order(ByteOrder.nativeOrder());
+		return buffer;
+	}
+
+	private static long words(int cells) { return (cells + 63L) >>> 6; }
+
+	private static long valuesOffset(int cells) { return HEADER_BYTES + words(cells) * 8; }
+
+	private static long fileSize(int cells) { return valuesOffset(cells) + 4L * cells; }
+}
@@ -0,0 +1,35 @@
+/**
+ * ManaKernel.java
+ *
+ * Batch evaluation of the mana function along a row segment of a DungeonMap.
+ * This scalar kernel calls DungeonMap.evaluateMana cell by cell; VectorManaKernel
+ * evaluates several columns at once with the incubating Vector API and is used
+ * whenever the jdk.incubator.vector module is present
+ * (java --add-modules jdk.incubator.vector ...).
+ * Run with -Dmana.kernel=scalar to force the scalar kernel.
+ */
+class ManaKernel {
+
+	static final ManaKernel INSTANCE = create();
+
+	/**
+	 * Writes the fixed point mana of cells (x, yFrom) .. (x, yTo-1) to out[0 .. yTo-yFrom-1].
+	 * Does not touch the map.
+	 */
+	void evaluateRow(DungeonMap map, int x, int yFrom, int yTo, int[] out) {
+		for (int y = yFrom; y < yTo; y++)
+			out[y - yFrom] = map.evaluateMana(x, y);
+	}
+
+	String name() { return "scalar"; }
+
+	private static ManaKernel create() {
+		if ("scalar".equals(System.getProperty("mana.kernel"))) return new ManaKernel();
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return new ManaKernel();
+		try { //loaded reflectively so that this class links without the vector module
+			return (ManaKernel) Class.forName("VectorManaKernel").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new ManaKernel();
+		}
+	}
+}
@@ -1,4 +1,3 @@
-import java.io.*;
 import java.util.*;
 
 public class ParallelBenchmark {
@@ -13,76 +12,19 @@ public class ParallelBenchmark {
 
         for (int gridSize : gridSizes) {
             for (double searchFraction : searchFractions) {
-                // Prepare arguments for the parallel program
-                String[] progArgs = {
-                        String.valueOf(gridSize),
-                        String.valueOf(searchFraction),
-                        String.valueOf(randomSeed)
-                };
-
-                // Capture console output of DungeonHunter.main()
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                PrintStream ps = new PrintStream(baos);
-                PrintStream oldOut = System.out;
-                System.setOut(ps);
-
-                try {
-                    DungeonHunter.main(progArgs);  // run parallel program
-                } finally {
-                    System.out.flush();
-                    System.setOut(oldOut);
-                }
-
-                // Parse output
-                String out = baos.toString();
-                long timeMs = parseLongAfter(out, "time: ", " ms");
-                int maxMana = parseIntAfter(out, "mana ");
-                double maxX = parseDoubleAfter(out, "x=");
-                double maxY = parseDoubleAfter(out, "y=");
-                int evaluatedPoints = parseIntAfter(out, "number dungeon grid points evaluated: ");
-                double evalPercent = parseDoubleAfter(out, "(");
-
-                // Number of searches (calculated same way as parallel code)
+                // Same dungeon and number of searches as DungeonHunter.main builds for these arguments
+                DungeonMap dungeon = new DungeonMap(-gridSize, gridSize, -gridSize, gridSize, randomSeed);
                 int numSearches = (int) (searchFraction * (gridSize * 2) * (gridSize * 2) * DungeonMap.RESOLUTION);
 
+                // Run the hunt in process: no report to parse and no images written
+                HuntResult result = DungeonHunter.hunt(dungeon, numSearches, randomSeed, "forkjoin", 0, 16);
+
                 // Print CSV row
-                System.out.printf(Locale.US, "%d,%.2f,%d,%d,%d,%.1f,%.1f,%d,%.2f%n",
-                        gridSize, searchFraction, numSearches, timeMs,
-                        maxMana, maxX, maxY, evaluatedPoints, evalPercent);
+                System.out.printf(Locale.US, "%d,%.2f,%d,%.3f,%d,%.1f,%.1f,%d,%.2f%n",
+                        gridSize, searchFraction, numSearches, result.elapsedMillis(),
+                        result.maxMana(), result.peakX(), result.peakY(),
+                        result.gridPointsEvaluated(), result.evaluatedPercent());
             }
         }
     }
-
-    // --- Helper parsing functions (same as serial benchmark) ---
-    private static long parseLongAfter(String text, String prefix, String suffix) {
-        int start = text.indexOf(prefix);
-        if (start == -1) return -1;
-        start += prefix.length();
-        int end = text.indexOf(suffix, start);
-        return Long.parseLong(text.substring(start, end).trim());
-    }
-
-    private static int parseIntAfter(String text, String prefix) {
-        int start = text.indexOf(prefix);
-        if (start == -1) return -1;
-        start += prefix.length();
-        StringBuilder num = new StringBuilder();
-        for (char c : text.substring(start).toCharArray()) {
-            if (Character.isDigit(c) || c == '-') num.append(c);
-            else break;
-        }
-        return Integer.parseInt(num.toString());
-    }
-
-    private static double parseDoubleAfter(String text, String prefix) {
-        int start = text.indexOf(prefix);
-        if (start == -1) return Double.NaN;
-        start += prefix.length();
-        StringBuilder num = new StringBuilder();
-        for (char c : text.substring(start).toCharArray()) {
-            if (Character.isDigit(c) || c == '.' || c == '-') num.append(c);
-            else break;
-        }
-        return Double.parseDouble(num.toString());
-    }
 }
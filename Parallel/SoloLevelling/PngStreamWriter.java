@@ -0,0 +1,179 @@
+/**
+ * PngStreamWriter.java
+ *
+ * Writes an RGB PNG a band of rows at a time, straight from a row source, so memory
+ * stays at a few bands whatever the image size. Bands are filtered and deflated in
+ * parallel as independent blocks (as pigz does): every band but the last ends with a
+ * sync flush, so the compressed bands concatenate into one valid zlib stream.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+final class PngStreamWriter {
+
+	/** Supplies the pixels of one image row as 0xRRGGBB. Called from several threads at once. */
+	interface RowSource {
+		void fillRow(int imageRow, int[] rgb);
+	}
+
+	private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+	private static final int BAND_BYTES = 1 << 18; //raw bytes per band, before compression
+	private static final int ADLER_BASE = 65521;
+
+	private PngStreamWriter() {}
+
+	/**
+	 * Writes a width x height PNG whose rows come from source, top row first.
+	 * At most about two bands per core are held in memory at once.
+	 */
+	static void write(String filename, int width, int height, RowSource source) throws IOException {
+		int rowBytes = 1 + 3 * width; //filter byte, then RGB
+		int bandRows = Math.max(1, BAND_BYTES / rowBytes);
+		int bands = (height + bandRows - 1) / bandRows;
+		int inFlight = 2 * Runtime.getRuntime().availableProcessors();
+
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename), 1 << 16)) {
+			out.write(SIGNATURE);
+			byte[] header = new byte[13];
+			putInt(header, 0, width);
+			putInt(header, 4, height);
+			header[8] = 8; //bit depth
+			header[9] = 2; //colour type: RGB
+			writeChunk(out, "IHDR", header, header.length);
+
+			byte[] zlibHeader = {0x78, (byte) 0x9c};
+			writeChunk(out, "IDAT", zlibHeader, zlibHeader.length);
+
+			ArrayDeque<CompletableFuture<Band>> pending = new ArrayDeque<>();
+			long adler = 1;
+			for (int b = 0, next = 0; b < bands; b++) {
+				while (next < bands && pending.size() < inFlight) {
+					int first = next * bandRows, last = Math.min(height, first + bandRows);
+					boolean finalBand = next == bands - 1;
+					pending.add(CompletableFuture.supplyAsync(
+							() -> compressBand(source, width, first, last, finalBand)));
+					next++;
+				}
+				Band band = pending.remove().join(); //in order
+				adler = combineAdler(adler, band.adler, band.rawLength);
+				if (b == bands - 1) {
+					byte[] data = Arrays.copyOf(band.data, band.length + 4);
+					putInt(data, band.length, (int) adler);
+					writeChunk(out, "IDAT", data, data.length);
+				} else {
+					writeChunk(out, "IDAT", band.data, band.length);
+				}
+			}
+			writeChunk(out, "IEND", new byte[0], 0);
+		}
+	}
+
+	/**
+	 * A source showing every factor-th pixel of every factor-th row of another source:
+	 * a (width/factor) x (height/factor) preview.
+	 */
+	static RowSource downsample(RowSource source, int width, int factor) {
+		ThreadLocal<int[]> fullRow = ThreadLocal.withInitial(() -> new int[width]);
+		return (imageRow, rgb) -> {
+			int[] row = fullRow.get();
+			source.fillRow(imageRow * factor, row);
+			for (int i = 0; i < rgb.length; i++) rgb[i] = row[i * factor];
+		};
+	}
+
+	private static final class Band {
+		final byte[] data;
+		final int length;
+		final long adler;
+		final int rawLength;
+
+		Band(byte[] data, int length, long adler, int rawLength) {
+			this.data = data;
+			this.length = length;
+			this.adler = adler;
+			this.rawLength = rawLength;
+		}
+	}
+
+	// filter rows [first, last) with the Sub filter and deflate them as one independent block
+	private static Band compressBand(RowSource source, int width, int first, int last, boolean finalBand) {
+		int rowBytes = 1 + 3 * width;
+		byte[] raw = new byte[(last - first) * rowBytes];
+		int[] rgb = new int[width];
+		for (int r = first, p = 0; r < last; r++) {
+			source.fillRow(r, rgb);
+			raw[p++] = 1; //Sub: each byte minus the same channel of the pixel to its left
+			int prev = 0;
+			for (int i = 0; i < width; i++) {
+				int pixel = rgb[i];
+				raw[p++] = (byte) ((pixel >> 16) - (prev >> 16));
+				raw[p++] = (byte) ((pixel >> 8) - (prev >> 8));
+				raw[p++] = (byte) (pixel - prev);
+				prev = pixel;
+			}
+		}
+		Adler32 adler = new Adler32();
+		adler.update(raw);
+
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true); //raw deflate, no zlib wrapper
+		deflater.setInput(raw);
+		if (finalBand) deflater.finish();
+		int flush = finalBand ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+		byte[] out = new byte[raw.length / 2 + 64];
+		int length = 0;
+		while (true) {
+			if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+			int space = out.length - length;
+			int written = deflater.deflate(out, length, space, flush);
+			length += written;
+			if (finalBand ? deflater.finished() : written < space) break; //a full buffer may hold more
+		}
+		deflater.end();
+		return new Band(out, length, adler.getValue(), raw.length);
+	}
+
+	// Adler-32 of the concatenation of two pieces, from their separate checksums (as zlib's adler32_combine)
+	static long combineAdler(long adler1, long adler2, long length2) {
+		long rem = length2 % ADLER_BASE;
+		long sum1 = adler1 & 0xffff;
+		long sum2 = (rem * sum1) % ADLER_BASE;
+		sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+		sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + ADLER_BASE - rem;
+		if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+		if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+		if (sum2 >= ((long) ADLER_BASE << 1)) sum2 -= ((long) ADLER_BASE << 1);
+		if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+		return sum1 | (sum2 << 16);
+	}
+
+	private static void writeChunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		byte[] word = new byte[4];
+		putInt(word, 0, length);
+		out.write(word);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		putInt(word, 0, (int) crc.getValue());
+		out.write(word);
+	}
+
+	private static void putInt(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) (value >>> 24);
+		buffer[offset + 1] = (byte) (value >>> 16);
+		buffer[offset + 2] = (byte) (value >>> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+}
@@ -0,0 +1,430 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Runs one hunt across several JVMs, for dungeons whose grid does not fit in one heap.
+ * The rows of the dungeon are split into strips, one per worker process, and a worker
+ * stores mana and visited flags for its own strip only (plus the mana of the row either
+ * side, which it evaluates itself). A search that steps off a worker's strip is handed to
+ * the owner of the row it steps into as a small (id, row, column) message. Workers talk
+ * to a coordinator over NIO socket channels; the coordinator relays the hand-offs, notices
+ * when every search has finished and reduces the workers' results.
+ *
+ * The searches, their start positions and the climbing rule are DungeonHunter's, so the
+ * result is comparable with a single-process run of the same arguments.
+ *
+ * Usage:
+ *   java ShardedHunt coordinator <gridSize> <searchFraction> <randomSeed> [options]
+ *   java ShardedHunt worker <host> <port>
+ * Coordinator options:
+ *   --workers=<n>   number of worker processes, one strip each (default 2)
+ *   --port=<p>      port to listen on (default 0: any free port, printed on stderr)
+ *   --spawn         start the workers as child JVMs on this host
+ */
+public class ShardedHunt {
+
+    // every message is one frame: a type and five ints
+    private static final int FRAME = 6 * Integer.BYTES;
+    private static final int CONFIG = 1;   // gateSize, randomSeed, numSearches, shard, shards
+    private static final int HUNT = 2;     // id, row, column, steps, mana where it last stood
+    private static final int PROGRESS = 3; // number of searches finished since the last PROGRESS
+    private static final int STOP = 4;     // every search has finished
+    private static final int RESULT = 5;   // best mana, its row, column and search id, points evaluated
+
+    private static final int BATCH = 64; // searches a worker runs between looks at its socket
+
+    // the eight steps, in the order getNextStepDirection tries them
+    private static final Hunt.Direction[] STEPS = Arrays.copyOfRange(Hunt.Direction.values(), 1, 9);
+
+    static int firstRow(int shard, int shards, int rows) { return (int) ((long) shard * rows / shards); }
+
+    static int ownerOf(int row, int shards, int rows) { return (int) (((long) (row + 1) * shards - 1) / rows); }
+
+    public static void main(String[] args) {
+        try {
+            if (args.length == 3 && args[0].equals("worker")) {
+                new Worker().run(args[1], Integer.parseInt(args[2]));
+            } else if (args.length >= 4 && args[0].equals("coordinator")) {
+                coordinate(args);
+            } else {
+                System.out.println("Usage: java ShardedHunt coordinator <gridSize> <searchFraction> <randomSeed>"
+                        + " [--workers=<n>] [--port=<p>] [--spawn]");
+                System.out.println("       java ShardedHunt worker <host> <port>");
+                System.exit(0);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error: All arguments must be numeric");
+            System.exit(1);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** One worker's part of the dungeon: rows [firstRow, endRow) of the grid. */
+    static final class Strip {
+        private final DungeonMap function; // no grid: evaluates mana only
+        private final int rows, columns, firstRow, endRow;
+        private final int[] mana;      // rows firstRow-1 .. endRow, flat as in DungeonMap
+        private final long[] visited;  // owned rows only
+        private int evaluated;         // owned cells whose mana this worker computed
+
+        Strip(DungeonMap function, int rows, int columns, int firstRow, int endRow) {
+            this.function = function;
+            this.rows = rows;
+            this.columns = columns;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+            mana = new int[(endRow - firstRow + 2) * columns];
+            Arrays.fill(mana, Integer.MIN_VALUE);
+            visited = new long[(int) (((long) (endRow - firstRow) * columns + 63) >>> 6)];
+        }
+
+        boolean owns(int row) { return row >= firstRow && row < endRow; }
+
+        int mana(int row, int col) {
+            int index = (row - firstRow + 1) * columns + col;
+            int power = mana[index];
+            if (power == Integer.MIN_VALUE) {
+                power = mana[index] = function.evaluateMana(row, col);
+                if (owns(row)) evaluated++;
+            }
+            return power;
+        }
+
+        private boolean tryVisit(int row, int col) {
+            int index = (row - firstRow) * columns + col;
+            long bit = 1L << index;
+            if ((visited[index >>> 6] & bit) != 0) return false;
+            visited[index >>> 6] |= bit;
+            return true;
+        }
+
+        // as DungeonMap.getNextStepDirection
+        private Hunt.Direction nextStep(int row, int col) {
+            Hunt.Direction climbDirection = Hunt.Direction.STAY;
+            int localMax = mana(row, col);
+            for (Hunt.Direction step : STEPS) {
+                int r = row + step.dRow, c = col + step.dCol;
+                if (r >= 0 && r < rows && c >= 0 && c < columns) {
+                    int power = mana(r, c);
+                    if (power > localMax) {
+                        localMax = power;
+                        climbDirection = step;
+                    }
+                }
+            }
+            return climbDirection;
+        }
+
+        /**
+         * Continues a search {id, row, column, steps, mana} as Hunt.findManaPeak climbs,
+         * until it reaches a peak, runs into a visited cell or steps off the strip.
+         * The search array is updated to where the search is now.
+         *
+         * @return true if the search finished, false if it stepped off the strip
+         */
+        boolean climb(int[] search) {
+            int row = search[1], col = search[2], steps = search[3], power = search[4];
+            boolean finished = true;
+            while (true) {
+                if (!owns(row)) {
+                    finished = false;
+                    break;
+                }
+                if (!tryVisit(row, col)) break; // stop when hit existing path
+                power = mana(row, col);
+                steps++;
+                Hunt.Direction next = nextStep(row, col);
+                if (next == Hunt.Direction.STAY) break; //found local peak
+                row += next.dRow;
+                col += next.dCol;
+            }
+            search[1] = row;
+            search[2] = col;
+            search[3] = steps;
+            search[4] = power;
+            return finished;
+        }
+    }
+
+    /** Receives frames; a Link calls it once per complete frame read. */
+    private interface FrameHandler {
+        void frame(int type, int a, int b, int c, int d, int e) throws IOException;
+    }
+
+    /** A socket channel with framed, buffered reads and writes. */
+    private static final class Link {
+        final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(FRAME * 4096);
+        private ByteBuffer out = ByteBuffer.allocate(FRAME * 4096);
+
+        Link(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void send(int type, int a, int b, int c, int d, int e) {
+            if (out.remaining() < FRAME) {
+                out.flip();
+                out = ByteBuffer.allocate(out.capacity() * 2).put(out);
+            }
+            out.putInt(type).putInt(a).putInt(b).putInt(c).putInt(d).putInt(e);
+        }
+
+        /** Writes what the channel takes now; true when nothing is left to write. */
+        boolean flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            return out.position() == 0;
+        }
+
+        /** Reads what has arrived and hands each complete frame on; false at end of stream. */
+        boolean receive(FrameHandler handler) throws IOException {
+            if (channel.read(in) < 0) return false;
+            in.flip();
+            while (in.remaining() >= FRAME)
+                handler.frame(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+            in.compact();
+            return true;
+        }
+    }
+
+    /** A worker process: hunts in its strip until the coordinator says every search is done. */
+    private static final class Worker implements FrameHandler {
+        private Strip strip;
+        private final ArrayDeque<int[]> queue = new ArrayDeque<>();
+        private int[] config;
+        private boolean stopped;
+        private int bestMana = Integer.MIN_VALUE, bestRow = -1, bestCol = -1, bestId = Integer.MAX_VALUE;
+
+        @Override
+        public void frame(int type, int a, int b, int c, int d, int e) throws IOException {
+            switch (type) {
+                case CONFIG: config = new int[] {a, b, c, d, e}; break;
+                case HUNT: queue.add(new int[] {a, b, c, d, e}); break;
+                case STOP: stopped = true; break;
+                default: throw new IOException("Unexpected message " + type);
+            }
+        }
+
+        void run(String host, int port) throws IOException {
+            try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+                    Selector selector = Selector.open()) {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                Link link = new Link(channel);
+
+                while (config == null) receive(link, selector);
+                start(config[0], config[1], config[2], config[3], config[4]);
+
+                while (!stopped) {
+                    int finished = 0;
+                    for (int n = 0; n < BATCH && !queue.isEmpty(); n++) {
+                        int[] search = queue.poll();
+                        if (strip.climb(search)) {
+                            finished++;
+                            if (search[4] > bestMana || (search[4] == bestMana && search[0] < bestId)) {
+                                bestMana = search[4];
+                                bestRow = search[1];
+                                bestCol = search[2];
+                                bestId = search[0];
+                            }
+                        } else {
+                            link.send(HUNT, search[0], search[1], search[2], search[3], search[4]); //hand off to the row's owner
+                        }
+                    }
+                    if (finished > 0) link.send(PROGRESS, finished, 0, 0, 0, 0);
+                    boolean flushed = link.flush();
+                    key.interestOps(flushed ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    if (queue.isEmpty()) receive(link, selector); //nothing to do until a message arrives
+                    else if (selector.selectNow() > 0) receive(link, selector);
+                }
+
+                link.send(RESULT, bestMana, bestRow, bestCol, bestId == Integer.MAX_VALUE ? -1 : bestId, strip.evaluated);
+                key.interestOps(SelectionKey.OP_WRITE);
+                while (!link.flush()) {
+                    selector.select();
+                    selector.selectedKeys().clear();
+                }
+            }
+        }
+
+        private void receive(Link link, Selector selector) throws IOException {
+            selector.select();
+            selector.selectedKeys().clear();
+            if (!link.receive(this)) throw new IOException("Coordinator closed the connection");
+        }
+
+        // build the strip and queue the searches that start in it, as DungeonHunter.huntRange places them
+        private void start(int gateSize, int randomSeed, int numSearches, int shard, int shards) {
+            DungeonMap function = new DungeonMap(-gateSize, gateSize, -gateSize, gateSize, randomSeed, false);
+            int rows = function.getRows(), columns = function.getColumns();
+            strip = new Strip(function, rows, columns,
+                    firstRow(shard, shards, rows), firstRow(shard + 1, shards, rows));
+            for (int i = 0; i < numSearches; i++) {
+                long bits = DungeonHunter.startBits(randomSeed, i);
+                int row = DungeonHunter.startRow(bits, rows);
+                if (strip.owns(row))
+                    queue.add(new int[] {i + 1, row, DungeonHunter.startCol(bits, columns), 0, Integer.MIN_VALUE});
+            }
+        }
+    }
+
+    private static void coordinate(String[] args) throws IOException {
+        int gateSize = Integer.parseInt(args[1]);
+        if (gateSize <= 0) throw new IllegalArgumentException("Grid size must be > 0");
+        int numSearches = (int) (Double.parseDouble(args[2]) * (gateSize * 2) * (gateSize * 2) * DungeonMap.RESOLUTION);
+        int randomSeed = Integer.parseInt(args[3]);
+        if (randomSeed < 0) throw new IllegalArgumentException("Random seed must be >= 0");
+        // every worker must build the same dungeon, so 0 (no fixed seed) picks one for all of them
+        if (randomSeed == 0) randomSeed = new SplittableRandom().nextInt(1, Integer.MAX_VALUE);
+        int shards = 2, port = 0;
+        boolean spawn = false;
+        for (int a = 4; a < args.length; a++) {
+            String[] option = args[a].split("=", 2);
+            String value = option.length > 1 ? option[1] : "";
+            switch (option[0]) {
+                case "--workers": shards = Integer.parseInt(value); break;
+                case "--port": port = Integer.parseInt(value); break;
+                case "--spawn": spawn = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[a]);
+            }
+        }
+        DungeonMap dungeon = new DungeonMap(-gateSize, gateSize, -gateSize, gateSize, randomSeed, false);
+        if (shards <= 0 || shards > dungeon.getRows())
+            throw new IllegalArgumentException("Workers must be between 1 and the number of rows");
+
+        List<Process> workers = new ArrayList<>();
+        try (ServerSocketChannel server = ServerSocketChannel.open();
+                Selector selector = Selector.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            System.err.println("coordinator waiting for " + shards + " workers on port " + port);
+            if (spawn) {
+                String java = ProcessHandle.current().info().command().orElse("java");
+                for (int s = 0; s < shards; s++) {
+                    workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "ShardedHunt",
+                            "worker", InetAddress.getLoopbackAddress().getHostAddress(), String.valueOf(port))
+                            .inheritIO().start());
+                }
+            }
+
+            Link[] links = new Link[shards];
+            for (int s = 0; s < shards; s++) links[s] = new Link(server.accept()); //shard by arrival order
+            Coordinator coordinator = new Coordinator(links, dungeon.getRows(), numSearches);
+
+            coordinator.startNanos = System.nanoTime();
+            SelectionKey[] keys = new SelectionKey[shards];
+            for (int s = 0; s < shards; s++) {
+                links[s].send(CONFIG, gateSize, randomSeed, numSearches, s, shards);
+                links[s].channel.configureBlocking(false);
+                keys[s] = links[s].channel.register(selector, SelectionKey.OP_READ, s);
+            }
+            if (numSearches == 0) coordinator.allFinished();
+
+            while (coordinator.results < shards) {
+                for (int s = 0; s < shards; s++) {
+                    if (!keys[s].isValid()) continue;
+                    boolean flushed = links[s].flush();
+                    keys[s].interestOps(flushed ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    int s = (Integer) key.attachment();
+                    if (key.isReadable() && !links[s].receive(coordinator.from(s))) {
+                        if (!coordinator.reported[s]) throw new IOException("Worker " + s + " closed the connection");
+                        key.cancel(); //done: closed after sending its result
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+
+            System.out.printf("\t dungeon size: %d,\n", gateSize);
+            System.out.printf("\t rows: %d, columns: %d\n", dungeon.getRows(), dungeon.getColumns());
+            System.out.printf("\t x: [%f, %f], y: [%f, %f]\n", (double) -gateSize, (double) gateSize,
+                    (double) -gateSize, (double) gateSize);
+            System.out.printf("\t Number searches: %d\n", numSearches);
+            System.out.printf("\t workers: %d, hand-offs: %d\n", shards, coordinator.handoffs);
+            System.out.printf("\n\t time: %d ms\n", (coordinator.endNanos - coordinator.startNanos) / 1_000_000);
+            System.out.printf("\tnumber dungeon grid points evaluated: %d (%2.0f%%)\n", coordinator.evaluated,
+                    (coordinator.evaluated * 100.0) / ((long) dungeon.getRows() * dungeon.getColumns()));
+            System.out.printf("Dungeon Master (mana %d) found at: ", coordinator.bestMana);
+            if (coordinator.bestRow >= 0)
+                System.out.printf("x=%.1f y=%.1f\n\n", dungeon.getXcoord(coordinator.bestRow), dungeon.getYcoord(coordinator.bestCol));
+            else
+                System.out.printf("nowhere\n\n");
+        } finally {
+            for (Process worker : workers) {
+                try {
+                    if (!worker.waitFor(10, java.util.concurrent.TimeUnit.SECONDS)) worker.destroyForcibly();
+                } catch (InterruptedException e) {
+                    worker.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /** Coordinator state: relays hand-offs, counts finished searches and reduces the results. */
+    private static final class Coordinator {
+        private final Link[] links;
+        private final int rows, numSearches;
+        long startNanos, endNanos;
+        int finished, handoffs, results;
+        final boolean[] reported; //which workers have sent their result
+        long evaluated;
+        int bestMana = Integer.MIN_VALUE, bestRow = -1, bestCol = -1, bestId = Integer.MAX_VALUE;
+
+        Coordinator(Link[] links, int rows, int numSearches) {
+            this.links = links;
+            this.rows = rows;
+            this.numSearches = numSearches;
+            reported = new boolean[links.length];
+        }
+
+        FrameHandler from(int shard) {
+            return (type, a, b, c, d, e) -> {
+                switch (type) {
+                    case HUNT:
+                        links[ownerOf(b, links.length, rows)].send(HUNT, a, b, c, d, e);
+                        handoffs++;
+                        break;
+                    case PROGRESS:
+                        finished += a;
+                        if (finished == numSearches) allFinished();
+                        break;
+                    case RESULT:
+                        if (d >= 0 && (a > bestMana || (a == bestMana && d < bestId))) {
+                            bestMana = a;
+                            bestRow = b;
+                            bestCol = c;
+                            bestId = d;
+                        }
+                        evaluated += e;
+                        reported[shard] = true;
+                        results++;
+                        break;
+                    default:
+                        throw new IOException("Unexpected message " + type + " from worker " + shard);
+                }
+            };
+        }
+
+        void allFinished() {
+            endNanos = System.nanoTime();
+            for (Link link : links) link.send(STOP, 0, 0, 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Core-scaling sweep for the Dungeon Hunter, run in process. For every gate size and
+ * search fraction it times the repository's serial program (Serial/SoloLevelling, the
+ * "reference" engine), this tree's serial engine, then the ForkJoin engine at each pool
+ * parallelism, and reports speedup and parallel efficiency against the reference time
+ * (strong scaling). The "serial" engine is this tree's concurrent map and hunt on one
+ * thread, so it shows what the parallel code costs before any parallelism.
+ * A weak-scaling series grows the dungeon area with the thread count, so each worker
+ * has the same share of cells and searches.
+ *
+ * Every configuration gets warm-up runs before the measured ones, and each run hunts a
+ * fresh dungeon built outside the timed region.
+ *
+ * The reference classes share names with these, so they are loaded on their own class
+ * loader from the compiled Serial tree (make -C Serial), and driven as its
+ * DungeonHunter.main drives them: the same searches, timed without the images.
+ *
+ * Usage:
+ *   java SweepHarness [options]
+ * Options:
+ *   --gates=<g,...>        gate sizes (default 20,50,100)
+ *   --fractions=<f,...>    search fractions (default 0.2,1)
+ *   --threads=<p,...>      ForkJoinPool parallelism (default 1, 2, 4, ... up to all cores)
+ *   --weak-gate=<g>        gate size of the weak-scaling series at one thread (default 50, 0 = no series)
+ *   --weak-fraction=<f>    search fraction of the weak-scaling series (default 0.2)
+ *   --warmup=<n>           unmeasured runs per configuration (default 3)
+ *   --repeats=<n>          measured runs per configuration (default 5)
+ *   --seed=<s>             dungeon and start position seed (default 42)
+ *   --order=<curve>        order of the searches, as DungeonHunter's --order (default random)
+ *   --format=csv|json      output format (default csv)
+ *   --serial-classes=<dir> compiled Serial/SoloLevelling classes (default ../Serial/SoloLevelling)
+ */
+public class SweepHarness {
+
+    // One configuration's measurements. speedup and efficiency are against the serial run
+    // of the same dungeon (strong) or of the one-thread dungeon (weak).
+    private static final class Row {
+        String scaling, engine;
+        int gateSize, threads, numSearches;
+        double searchFraction;
+        double[] millis;
+        double speedup, efficiency;
+        int maxMana, evaluated;
+
+        double median() {
+            double[] sorted = millis.clone();
+            Arrays.sort(sorted);
+            int n = sorted.length;
+            return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+        }
+
+        double min() { return Arrays.stream(millis).min().orElse(Double.NaN); }
+
+        double mean() { return Arrays.stream(millis).average().orElse(Double.NaN); }
+
+        double stdev() {
+            double mean = mean(), sum = 0;
+            for (double m : millis) sum += (m - mean) * (m - mean);
+            return millis.length > 1 ? Math.sqrt(sum / (millis.length - 1)) : 0;
+        }
+    }
+
+    private static int warmup = 3, repeats = 5;
+    private static int seed = 42;
+    private static String order = "random";
+    private static SerialReference reference;
+
+    public static void main(String[] args) throws Exception {
+        int[] gates = {20, 50, 100};
+        double[] fractions = {0.2, 1};
+        int[] threads = defaultThreads(Runtime.getRuntime().availableProcessors());
+        int weakGate = 50;
+        double weakFraction = 0.2;
+        String format = "csv";
+        String serialClasses = "../Serial/SoloLevelling";
+
+        try {
+            for (String arg : args) {
+                String[] option = arg.split("=", 2);
+                String value = option.length > 1 ? option[1] : "";
+                switch (option[0]) {
+                    case "--gates": gates = parseInts(value); break;
+                    case "--fractions": fractions = Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray(); break;
+                    case "--threads": threads = parseInts(value); break;
+                    case "--weak-gate": weakGate = Integer.parseInt(value); break;
+                    case "--weak-fraction": weakFraction = Double.parseDouble(value); break;
+                    case "--warmup": warmup = Integer.parseInt(value); break;
+                    case "--repeats": repeats = Integer.parseInt(value); break;
+                    case "--seed": seed = Integer.parseInt(value); break;
+                    case "--format": format = value; break;
+                    case "--order": order = value; break;
+                    case "--serial-classes": serialClasses = value; break;
+                    default: throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (!format.equals("csv") && !format.equals("json"))
+                throw new IllegalArgumentException("Unknown format " + format);
+            if (!order.equals("random") && !order.equals("hilbert") && !order.equals("morton"))
+                throw new IllegalArgumentException("Unknown order " + order);
+            if (warmup < 0 || repeats <= 0) throw new IllegalArgumentException("Need warmup >= 0 and repeats > 0");
+            for (int p : threads) if (p <= 0) throw new IllegalArgumentException("Thread counts must be > 0");
+            reference = new SerialReference(Path.of(serialClasses));
+        } catch (NumberFormatException e) {
+            System.err.println("Error: option values must be numeric");
+            System.exit(1);
+        } catch (IllegalArgumentException | IOException | ReflectiveOperationException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+
+        List<Row> rows = new ArrayList<>();
+
+        // Strong scaling: the same dungeon and searches on more and more workers
+        for (int gate : gates) {
+            for (double fraction : fractions) {
+                Row baseline = measure("strong", "reference", gate, fraction, 1);
+                baseline.speedup = baseline.efficiency = 1;
+                rows.add(baseline);
+                Row serial = measure("strong", "serial", gate, fraction, 1);
+                serial.speedup = serial.efficiency = baseline.median() / serial.median();
+                rows.add(serial);
+                for (int p : threads) {
+                    Row row = measure("strong", "forkjoin", gate, fraction, p);
+                    row.speedup = baseline.median() / row.median();
+                    row.efficiency = row.speedup / p;
+                    rows.add(row);
+                }
+            }
+        }
+
+        // Weak scaling: p workers hunt a dungeon of p times the area at the same search fraction
+        if (weakGate > 0) {
+            Row baseline = measure("weak", "reference", weakGate, weakFraction, 1);
+            baseline.speedup = baseline.efficiency = 1;
+            rows.add(baseline);
+            for (int p : threads) {
+                Row row = measure("weak", "forkjoin", (int) Math.round(weakGate * Math.sqrt(p)), weakFraction, p);
+                row.efficiency = baseline.median() / row.median();
+                row.speedup = row.efficiency * p; //scaled speedup
+                rows.add(row);
+            }
+        }
+
+        if (format.equals("json")) printJson(rows);
+        else printCsv(rows);
+    }
+
+    // warm up, then time repeats runs of one configuration, each on a fresh dungeon
+    private static Row measure(String scaling, String engine, int gate, double fraction, int threads) throws Exception {
+        Row row = new Row();
+        row.scaling = scaling;
+        row.engine = engine;
+        row.gateSize = gate;
+        row.searchFraction = fraction;
+        row.threads = threads;
+        row.numSearches = (int) (fraction * (gate * 2) * (gate * 2) * DungeonMap.RESOLUTION);
+        row.millis = new double[repeats];
+        for (int run = -warmup; run < repeats; run++) {
+            if (engine.equals("reference")) {
+                reference.run(gate, row.numSearches, seed, row, run);
+                continue;
+            }
+            DungeonMap dungeon = new DungeonMap(-gate, gate, -gate, gate, seed);
+            System.gc(); //keep the previous dungeon's garbage out of the timed region
+            HuntResult result = DungeonHunter.hunt(dungeon, row.numSearches, seed, engine, threads, 16, order, 0);
+            if (run >= 0) row.millis[run] = result.elapsedMillis();
+            row.maxMana = result.maxMana();
+            row.evaluated = result.gridPointsEvaluated();
+        }
+        System.err.printf(Locale.US, "%s %s gate=%d fraction=%.2f threads=%d: %.3f ms%n",
+                scaling, engine, gate, fraction, threads, row.median());
+        return row;
+    }
+
+    /**
+     * The repository's serial program, Serial/SoloLevelling, on a class loader of its own.
+     * run places and climbs the searches as its DungeonHunter.main does.
+     */
+    private static final class SerialReference {
+        private final Constructor<?> newMap, newHunt;
+        private final Method findManaPeak, getRows, getColumns, getGridPointsEvaluated;
+
+        SerialReference(Path dir) throws IOException, ReflectiveOperationException {
+            if (!Files.exists(dir.resolve("DungeonMap.class")) || !Files.exists(dir.resolve("Hunt.class")))
+                throw new IllegalArgumentException("No compiled serial program in " + dir
+                        + " (run make in Serial, or pass --serial-classes=<dir>)");
+            ClassLoader loader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, ClassLoader.getPlatformClassLoader());
+            Class<?> map = Class.forName("DungeonMap", true, loader);
+            Class<?> hunt = Class.forName("Hunt", true, loader);
+            newMap = map.getConstructor(double.class, double.class, double.class, double.class, int.class);
+            newHunt = hunt.getConstructor(int.class, int.class, int.class, map);
+            findManaPeak = hunt.getMethod("findManaPeak");
+            getRows = map.getMethod("getRows");
+            getColumns = map.getMethod("getColumns");
+            getGridPointsEvaluated = map.getMethod("getGridPointsEvaluated");
+        }
+
+        // one run of numSearches hunts on a fresh dungeon, recorded in row as measured run `run` (< 0: warm-up)
+        void run(int gate, int numSearches, int randomSeed, Row row, int run) throws ReflectiveOperationException {
+            Object dungeon = newMap.newInstance((double) -gate, (double) gate, (double) -gate, (double) gate, randomSeed);
+            int rows = (int) getRows.invoke(dungeon), columns = (int) getColumns.invoke(dungeon);
+            Random rand = randomSeed > 0 ? new Random(randomSeed) : new Random();
+            Object[] searches = new Object[numSearches];
+            for (int i = 0; i < numSearches; i++)
+                searches[i] = newHunt.newInstance(i + 1, rand.nextInt(rows), rand.nextInt(columns), dungeon);
+            System.gc(); //keep the previous dungeon's garbage out of the timed region
+            int max = Integer.MIN_VALUE;
+            long start = System.nanoTime();
+            try {
+                for (Object search : searches) max = Math.max(max, (int) findManaPeak.invoke(search));
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException("Serial hunt failed", e.getCause());
+            }
+            long end = System.nanoTime();
+            if (run >= 0) row.millis[run] = (end - start) / 1e6;
+            row.maxMana = max;
+            row.evaluated = (int) getGridPointsEvaluated.invoke(dungeon);
+        }
+    }
+
+    // 1, 2, 4, ... below the number of cores, then the number of cores itself
+    private static int[] defaultThreads(int cores) {
+        List<Integer> counts = new ArrayList<>();
+        for (int p = 1; p < cores; p *= 2) counts.add(p);
+        counts.add(cores);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] parseInts(String list) {
+        return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static void printCsv(List<Row> rows) {
+        System.out.println("scaling,engine,gridSize,searchFraction,numSearches,threads,medianMs,minMs,meanMs,stdevMs,speedup,efficiency,maxMana,evaluatedPoints");
+        for (Row r : rows) {
+            System.out.printf(Locale.US, "%s,%s,%d,%.2f,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d%n",
+                    r.scaling, r.engine, r.gateSize, r.searchFraction, r.numSearches, r.threads,
+                    r.median(), r.min(), r.mean(), r.stdev(), r.speedup, r.efficiency, r.maxMana, r.evaluated);
+        }
+    }
+
+    private static void printJson(List<Row> rows) {
+        System.out.println("[");
+        for (int i = 0; i < rows.size(); i++) {
+            Row r = rows.get(i);
+            StringJoiner runs = new StringJoiner(", ", "[", "]");
+            for (double m : r.millis) runs.add(String.format(Locale.US, "%.3f", m));
+            System.out.printf(Locale.US, "  {\"scaling\": \"%s\", \"engine\": \"%s\", \"gridSize\": %d, \"searchFraction\": %.2f,"
+                            + " \"numSearches\": %d, \"threads\": %d, \"medianMs\": %.3f, \"minMs\": %.3f, \"meanMs\": %.3f,"
+                            + " \"stdevMs\": %.3f, \"speedup\": %.3f, \"efficiency\": %.3f, \"maxMana\": %d,"
+                            + " \"evaluatedPoints\": %d, \"runsMs\": %s}%s%n",
+                    r.scaling, r.engine, r.gateSize, r.searchFraction, r.numSearches, r.threads,
+                    r.median(), r.min(), r.mean(), r.stdev(), r.speedup, r.efficiency, r.maxMana, r.evaluated,
+                    runs, i < rows.size() - 1 ? "," : "");
+        }
+        System.out.println("]");
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * VectorManaKernel.java
+ *
+ * The mana function evaluated SPECIES.length() columns at a time with the Vector API.
+ * The x-only and y-only terms come from the DungeonMap tables, so only the truly
+ * 2D terms are computed lane-wise.
+ * The lane-wise transcendental operations are accurate to about an ulp rather than
+ * bit-identical to Math, so any cell whose scaled value lands within EDGE of an
+ * integer (where truncation to fixed point could tip either way) is recomputed
+ * with the scalar formula. The fixed point results are therefore identical to
+ * DungeonMap.evaluateMana.
+ */
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorManaKernel extends ManaKernel {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final double EDGE = 1e-6; //far above the accumulated rounding error of the sum
+
+	@Override
+	void evaluateRow(DungeonMap map, int x, int yFrom, int yTo, int[] out) {
+		final int lanes = SPECIES.length();
+		double[] scaled = new double[lanes];
+
+		/* x is fixed along a row, so the x-only terms are scalars */
+		double x_coord = map.getXcoord(x);
+		double bossX = map.getBossX(), bossY = map.getBossY();
+		double dx = x_coord - bossX;
+		double dx2 = (x_coord - bossX - 15) * (x_coord - bossX - 15);
+		double x05 = x_coord * 0.5, x15 = x_coord * 1.5;
+		double cosX5 = map.getXcos5(x), sinX6 = map.getXsin6(x), sinX = map.getXsin(x);
+		/* and the y-only terms are loaded per lane */
+		double[] yCoord = map.getYcoords(), ySin5 = map.getYsin5(), yCos4 = map.getYcos4();
+		double[] yLog = map.getYlog(), ySin = map.getYsin();
+
+		int y = yFrom;
+		for (int upper = yFrom + SPECIES.loopBound(yTo - yFrom); y < upper; y += lanes) {
+			DoubleVector yc = DoubleVector.fromArray(SPECIES, yCoord, y);
+			DoubleVector dy = yc.sub(bossY);
+			DoubleVector distanceSquared = dy.mul(dy).add(dx * dx);
+
+			DoubleVector t1 = DoubleVector.fromArray(SPECIES, ySin5, y).add(x_coord).add(Math.PI / 2)
+					.lanewise(VectorOperators.SIN).mul(2)
+					.mul(yc.add(cosX5).add(Math.PI / 2).div(2.0).lanewise(VectorOperators.COS));
+			DoubleVector t2 = yc.mul(0.3).add(x05).add(sinX6).add(Math.PI / 2)
+					.lanewise(VectorOperators.SIN).mul(0.7);
+			DoubleVector t3 = DoubleVector.fromArray(SPECIES, yCos4, y)
+					.add(yc.mul(-0.8).add(x15))
+					.lanewise(VectorOperators.SIN).mul(0.3);
+			DoubleVector t4 = DoubleVector.fromArray(SPECIES, yLog, y);
+			DoubleVector t5 = yc.mul(x_coord).div(4.0).add(sinX)
+					.lanewise(VectorOperators.SIN).mul(0.5);
+			DoubleVector t6 = DoubleVector.fromArray(SPECIES, ySin, y).add(yc.add(x_coord).div(5.0))
+					.lanewise(VectorOperators.COS).mul(1.5);
+			DoubleVector by = yc.sub(bossY).add(10);
+			DoubleVector t7 = by.mul(by).add(dx2).mul(-0.03)
+					.lanewise(VectorOperators.EXP).mul(3.0);
+			DoubleVector t8 = distanceSquared.mul(-0.01).lanewise(VectorOperators.EXP).mul(8.0);
+			DoubleVector t9 = DoubleVector.broadcast(SPECIES, 2.0).div(distanceSquared.mul(0.05).add(1.0));
+
+			t1.add(t2).add(t3).add(t4).add(t5).add(t6).add(t7).add(t8).add(t9)
+					.mul(DungeonMap.PRECISION).intoArray(scaled, 0);
+
+			for (int lane = 0; lane < lanes; lane++) {
+				double v = scaled[lane];
+				out[y - yFrom + lane] = (Math.abs(v - Math.rint(v)) < EDGE)
+						? map.evaluateMana(x, y + lane) //too close to call - use the reference formula
+						: (int) v;
+			}
+		}
+		for (; y < yTo; y++) //tail
+			out[y - yFrom] = map.evaluateMana(x, y);
+	}
+
+	@Override
+	String name() { return "vector " + SPECIES; }
+}
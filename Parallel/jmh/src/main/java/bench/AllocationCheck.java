@@ -0,0 +1,51 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that the hunt hot path allocates nothing once warm: times many
+ * Hunt.findManaPeak calls on hunts and maps built beforehand, reading the
+ * thread's allocated-bytes counter around them. Exits with status 1 if the
+ * measured hunts allocated anything.
+ *
+ *   java -cp target/benchmarks.jar bench.AllocationCheck [gateSize] [searchFraction]
+ *
+ * Tiles, basins and stats are left off: tiles allocate a row buffer per
+ * tile filled, by design.
+ */
+public class AllocationCheck {
+    private static final int WARMUP_ROUNDS = 20, MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int gateSize = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        double searchFraction = args.length > 1 ? Double.parseDouble(args[1]) : 0.2;
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long hunts = 0, allocated = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            Object map = Dungeon.newMap(gateSize, ManaBenchmark.SEED);
+            int rows = Dungeon.rows(map), columns = Dungeon.columns(map);
+            int numSearches = Dungeon.numSearches(gateSize, searchFraction);
+            java.util.SplittableRandom rand = new java.util.SplittableRandom(round);
+            Object[] searches = new Object[numSearches];
+            for (int i = 0; i < numSearches; i++)
+                searches[i] = Dungeon.newHunt(i + 1, rand.nextInt(rows), rand.nextInt(columns), map);
+
+            long before = threads.getThreadAllocatedBytes(thread);
+            int max = Integer.MIN_VALUE;
+            for (Object search : searches) max = Math.max(max, Dungeon.findManaPeak(search));
+            long after = threads.getThreadAllocatedBytes(thread);
+
+            if (round >= WARMUP_ROUNDS) {
+                allocated += after - before;
+                hunts += numSearches;
+            }
+            if (max == Integer.MIN_VALUE) throw new IllegalStateException("no peak found");
+        }
+        System.out.printf("%d hunts allocated %d bytes (%.3f bytes per hunt)%n",
+                hunts, allocated, (double) allocated / hunts);
+        System.exit(allocated == 0 ? 0 : 1);
+    }
+}
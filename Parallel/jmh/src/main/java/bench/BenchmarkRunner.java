@@ -0,0 +1,24 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: the usual JMH command line, with the GC
+ * profiler always on so every result carries its allocation rate
+ * (gc.alloc.rate.norm is bytes allocated per operation).
+ * Forks get the Vector API module so the batch mana kernel is used.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend("--add-modules", "jdk.incubator.vector")
+                .build();
+        new Runner(options).run();
+    }
+}
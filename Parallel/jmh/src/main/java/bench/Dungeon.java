@@ -0,0 +1,207 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Access to the Dungeon Hunter classes from the benchmarks.
+ *
+ * The hunter lives in the default package, which cannot be imported from a
+ * named package, and JMH refuses benchmarks in the default package. Every entry
+ * point is therefore looked up once as a static final MethodHandle; the JIT
+ * treats these as constants, so a call costs the same as a direct call.
+ */
+final class Dungeon {
+    static final Class<?> MAP = load("DungeonMap");
+    static final Class<?> HUNT = load("Hunt");
+    static final Class<?> TASK = load("DungeonHunter$HuntTask");
+
+    private static final MethodHandle NEW_MAP = constructor(MAP,
+            double.class, double.class, double.class, double.class, int.class);
+    private static final MethodHandle MANA = method(MAP, "getManaLevel", int.class, int.class, int.class);
+    private static final MethodHandle FILL_ROW = method(MAP, "fillManaRow", void.class, int.class, int.class, int.class);
+    private static final MethodHandle NEXT_STEP = method(MAP, "getNextStepDirection", load("Hunt$Direction"), int.class, int.class);
+    private static final MethodHandle NEXT_STEP_PACKED = method(MAP, "nextStep", int.class, int.class, int.class);
+    private static final MethodHandle SET_TILE_SIZE = method(MAP, "setTileSize", void.class, int.class);
+    private static final MethodHandle ROWS = method(MAP, "getRows", int.class);
+    private static final MethodHandle COLUMNS = method(MAP, "getColumns", int.class);
+    private static final MethodHandle EVALUATED = method(MAP, "getGridPointsEvaluated", int.class);
+    private static final MethodHandle NEW_HUNT = constructor(HUNT, int.class, int.class, int.class, MAP);
+    private static final MethodHandle FIND_PEAK = method(HUNT, "findManaPeak", int.class);
+    private static final MethodHandle NEW_TASK = constructor(TASK, MAP, int.class, int.class,
+            long.class, HUNT.arrayType(), int[].class);
+    private static final int RESOLUTION = intConstant(MAP, "RESOLUTION");
+
+    private Dungeon() {}
+
+    /** A square dungeon of the given gate size, as built by DungeonHunter.main. */
+    static Object newMap(int gateSize, int seed) {
+        try {
+            return (Object) NEW_MAP.invokeExact((double) -gateSize, (double) gateSize,
+                    (double) -gateSize, (double) gateSize, seed);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int mana(Object map, int x, int y) {
+        try {
+            return (int) MANA.invokeExact(map, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void fillManaRow(Object map, int x, int yFrom, int yTo) {
+        try {
+            FILL_ROW.invokeExact(map, x, yFrom, yTo);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object nextStep(Object map, int x, int y) {
+        try {
+            return (Object) NEXT_STEP.invokeExact(map, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /** DungeonMap.nextStep: the packed step (mana << STEP_BITS | code). */
+    static int nextStepPacked(Object map, int x, int y) {
+        try {
+            return (int) NEXT_STEP_PACKED.invokeExact(map, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void setTileSize(Object map, int size) {
+        try {
+            SET_TILE_SIZE.invokeExact(map, size);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int rows(Object map) {
+        try {
+            return (int) ROWS.invokeExact(map);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int columns(Object map) {
+        try {
+            return (int) COLUMNS.invokeExact(map);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int evaluated(Object map) {
+        try {
+            return (int) EVALUATED.invokeExact(map);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newHunt(int id, int row, int col, Object map) {
+        try {
+            return (Object) NEW_HUNT.invokeExact(id, row, col, map);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int findManaPeak(Object hunt) {
+        try {
+            return (int) FIND_PEAK.invokeExact(hunt);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /** The root HuntTask over all searches, exactly as DungeonHunter.main creates it. */
+    @SuppressWarnings("unchecked")
+    static ForkJoinTask<Integer> newHuntTask(Object map, int numSearches, long seed) {
+        Object searches = Array.newInstance(HUNT, numSearches);
+        try {
+            return (ForkJoinTask<Integer>) (Object) NEW_TASK.invokeExact(map, 0, numSearches, seed,
+                    searches, new int[numSearches]);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /** Number of searches for a gate size and search fraction, as DungeonHunter.main computes it. */
+    static int numSearches(int gateSize, double searchFraction) {
+        return (int) (searchFraction * (gateSize * 2) * (gateSize * 2) * RESOLUTION);
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Dungeon Hunter class not on the classpath: " + name, e);
+        }
+    }
+
+    private static MethodHandles.Lookup lookupIn(Class<?> c) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+    }
+
+    // handle typed with Object in place of the hunter classes, so callers can use invokeExact
+    private static MethodHandle method(Class<?> owner, String name, Class<?> ret, Class<?>... params) {
+        try {
+            MethodHandle mh = lookupIn(owner).findVirtual(owner, name,
+                    MethodType.methodType(ret, params));
+            return mh.asType(MethodType.methodType(erased(ret), erasedAll(params))
+                    .insertParameterTypes(0, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... params) {
+        try {
+            MethodHandle mh = lookupIn(owner).findConstructor(owner,
+                    MethodType.methodType(void.class, params));
+            return mh.asType(MethodType.methodType(Object.class, erasedAll(params)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No constructor for " + owner.getName(), e);
+        }
+    }
+
+    private static int intConstant(Class<?> owner, String name) {
+        try {
+            return owner.getField(name).getInt(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static Class<?> erased(Class<?> type) {
+        boolean jdkType = type.isPrimitive() || type.getName().startsWith("java.")
+                || (type.isArray() && type.getComponentType().isPrimitive());
+        return jdkType ? type : Object.class;
+    }
+
+    private static Class<?>[] erasedAll(Class<?>[] types) {
+        Class<?>[] out = new Class<?>[types.length];
+        for (int i = 0; i < types.length; i++) out[i] = erased(types[i]);
+        return out;
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new IllegalStateException(t);
+    }
+}
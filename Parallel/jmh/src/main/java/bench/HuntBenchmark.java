@@ -0,0 +1,109 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole hunts: a single Hunt.findManaPeak, and the full HuntTask over all
+ * searches of a run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HuntBenchmark {
+    static final int SEED = ManaBenchmark.SEED;
+
+    /**
+     * Hunts from random starts on one map, as a run does them. After the
+     * run's numSearches hunts the map is rebuilt, so later (shorter) hunts are
+     * weighted as in a real run; the rebuild is spread over those hunts.
+     */
+    @State(Scope.Thread)
+    public static class Hunts {
+        @Param({"20", "100"})
+        int gateSize;
+        @Param({"0.2", "1.0"})
+        double searchFraction;
+
+        Object map;
+        int rows, columns, numSearches, id;
+        Random rand;
+
+        @Setup(Level.Iteration)
+        public void fresh() {
+            map = Dungeon.newMap(gateSize, SEED);
+            rows = Dungeon.rows(map);
+            columns = Dungeon.columns(map);
+            numSearches = Dungeon.numSearches(gateSize, searchFraction);
+            rand = new Random(SEED);
+            id = 0;
+        }
+
+        Object nextHunt() {
+            if (id == numSearches) fresh();
+            return Dungeon.newHunt(++id, rand.nextInt(rows), rand.nextInt(columns), map);
+        }
+    }
+
+    /** A fresh map and pool for each full run. */
+    @State(Scope.Thread)
+    public static class Run {
+        @Param({"20", "100"})
+        int gateSize;
+        @Param({"0.2", "1.0"})
+        double searchFraction;
+        @Param({"1", "2", "4", "8"})
+        int parallelism;
+        @Param({"0", "32"})
+        int tileSize;
+
+        ForkJoinPool pool;
+        Object map;
+        int numSearches;
+
+        @Setup(Level.Trial)
+        public void startPool() {
+            pool = new ForkJoinPool(parallelism);
+            numSearches = Dungeon.numSearches(gateSize, searchFraction);
+        }
+
+        @Setup(Level.Invocation)
+        public void freshMap() {
+            map = Dungeon.newMap(gateSize, SEED);
+            Dungeon.setTileSize(map, tileSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void stopPool() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int findManaPeak(Hunts s) {
+        return Dungeon.findManaPeak(s.nextHunt());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int huntTask(Run r) {
+        return r.pool.invoke(Dungeon.newHuntTask(r.map, r.numSearches, SEED));
+    }
+}
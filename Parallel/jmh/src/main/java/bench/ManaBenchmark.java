@@ -0,0 +1,137 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-cell costs of DungeonMap: evaluating mana, reading it back, choosing the
+ * next step, and building the map itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManaBenchmark {
+    static final int SEED = 42;
+
+    /**
+     * A map whose cells are handed out once each, so every call evaluates mana.
+     * When all cells are used a new map is built; that cost is spread over
+     * rows*columns calls.
+     */
+    @State(Scope.Thread)
+    public static class ColdMap {
+        @Param({"20", "100"})
+        int gateSize;
+
+        Object map;
+        int columns, cells, next;
+
+        @Setup(Level.Iteration)
+        public void fresh() {
+            map = Dungeon.newMap(gateSize, SEED);
+            columns = Dungeon.columns(map);
+            cells = Dungeon.rows(map) * columns;
+            next = 0;
+        }
+
+        int nextCell() {
+            if (next == cells) fresh();
+            return next++;
+        }
+
+        int nextRow() {
+            if (next == cells) fresh();
+            int row = next / columns;
+            next += columns;
+            return row;
+        }
+    }
+
+    /** A fully evaluated map, visited at random interior cells. */
+    @State(Scope.Thread)
+    public static class CachedMap {
+        @Param({"20", "100"})
+        int gateSize;
+
+        static final int POSITIONS = 4096; // power of two
+        Object map;
+        final int[] xs = new int[POSITIONS], ys = new int[POSITIONS];
+        int next;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            map = Dungeon.newMap(gateSize, SEED);
+            int rows = Dungeon.rows(map), columns = Dungeon.columns(map);
+            for (int x = 0; x < rows; x++)
+                for (int y = 0; y < columns; y++)
+                    Dungeon.mana(map, x, y);
+            Random rand = new Random(SEED);
+            for (int i = 0; i < POSITIONS; i++) {
+                xs[i] = 1 + rand.nextInt(rows - 2);
+                ys[i] = 1 + rand.nextInt(columns - 2);
+            }
+        }
+
+        int nextPosition() {
+            return next++ & (POSITIONS - 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Gate {
+        @Param({"20", "100"})
+        int gateSize;
+    }
+
+    @Benchmark
+    public int manaCold(ColdMap s) {
+        int cell = s.nextCell();
+        return Dungeon.mana(s.map, cell / s.columns, cell % s.columns);
+    }
+
+    /** A whole row of fresh cells through the batch (vector) kernel; divide by columns for per-cell cost. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void manaColdRow(ColdMap s) {
+        Dungeon.fillManaRow(s.map, s.nextRow(), 0, s.columns);
+    }
+
+    @Benchmark
+    public int manaCached(CachedMap s) {
+        int i = s.nextPosition();
+        return Dungeon.mana(s.map, s.xs[i], s.ys[i]);
+    }
+
+    @Benchmark
+    public Object nextStepDirection(CachedMap s) {
+        int i = s.nextPosition();
+        return Dungeon.nextStep(s.map, s.xs[i], s.ys[i]);
+    }
+
+    @Benchmark
+    public int nextStepPacked(CachedMap s) {
+        int i = s.nextPosition();
+        return Dungeon.nextStepPacked(s.map, s.xs[i], s.ys[i]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object constructor(Gate g) {
+        return Dungeon.newMap(g.gateSize, SEED);
+    }
+}